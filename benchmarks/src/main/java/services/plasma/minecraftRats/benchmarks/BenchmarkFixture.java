@@ -0,0 +1,355 @@
+package services.plasma.minecraftRats.benchmarks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Server;
+import org.bukkit.UnsafeValues;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.mockito.stubbing.Answer;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.config.ConfigManager;
+import services.plasma.minecraftRats.config.RatSettings;
+import services.plasma.minecraftRats.entities.RatData;
+import services.plasma.minecraftRats.managers.NestManager;
+import services.plasma.minecraftRats.managers.RatManager;
+import services.plasma.minecraftRats.metrics.RatMetrics;
+import services.plasma.minecraftRats.scheduler.BukkitRatScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * A plugin instance wired to a stubbed server and world, built from the
+ * bundled config.yml. Mocks are stub-only so they don't record invocations
+ * while a benchmark calls them millions of times.
+ */
+public final class BenchmarkFixture {
+
+    private static final Logger LOGGER = Logger.getLogger("MinecraftRats");
+    private static BenchmarkFixture instance;
+    private static final AtomicInteger NEXT_ENTITY_ID = new AtomicInteger();
+
+    private static Server server;
+
+    private final MinecraftRats plugin;
+    private final ConfigManager configManager;
+    private final RatManager ratManager;
+    private final World world;
+    private final Location spawnLocation;
+
+    private BenchmarkFixture() throws Exception {
+        installServer();
+
+        File dataFolder = Files.createTempDirectory("minecraft-rats-bench").toFile();
+        dataFolder.deleteOnExit();
+        writeConfig(new File(dataFolder, "config.yml"));
+
+        plugin = stub(MinecraftRats.class);
+        when(plugin.getName()).thenReturn("MinecraftRats");
+        when(plugin.getDataFolder()).thenReturn(dataFolder);
+        when(plugin.getLogger()).thenReturn(LOGGER);
+        when(plugin.isEnabled()).thenReturn(true);
+        when(plugin.getScheduler()).thenReturn(new BukkitRatScheduler(plugin));
+
+        Field instanceField = MinecraftRats.class.getDeclaredField("instance");
+        instanceField.setAccessible(true);
+        instanceField.set(null, plugin);
+
+        configManager = new ConfigManager(plugin);
+        configManager.loadConfig();
+        when(plugin.getConfigManager()).thenReturn(configManager);
+
+        RatData.init(plugin);
+
+        RatMetrics metrics = new RatMetrics(plugin);
+        when(plugin.getMetrics()).thenReturn(metrics);
+
+        NestManager nestManager = new NestManager(plugin);
+        when(plugin.getNestManager()).thenReturn(nestManager);
+
+        ratManager = new RatManager(plugin);
+        when(plugin.getRatManager()).thenReturn(ratManager);
+
+        world = stub(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        when(world.getName()).thenReturn("world");
+
+        Block ground = block(Material.STONE);
+        Block air = block(Material.AIR);
+        Block spawnBlock = block(Material.AIR);
+        when(spawnBlock.getRelative(0, -1, 0)).thenReturn(ground);
+        when(spawnBlock.getRelative(0, 1, 0)).thenReturn(air);
+        when(world.getBlockAt(any(Location.class))).thenReturn(spawnBlock);
+
+        spawnLocation = new Location(world, 100.5, 64, 100.5);
+
+        seedSpatialIndex(new Random(42));
+    }
+
+    /**
+     * Get the shared fixture, building it on first use. The plugin keeps its
+     * instance in a static field, so all benchmarks share one fixture.
+     *
+     * @return The fixture
+     */
+    public static synchronized BenchmarkFixture get() {
+        if (instance == null) {
+            try {
+                instance = new BenchmarkFixture();
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not build the benchmark fixture", e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get the stub server, so callers can add stubs of their own
+     *
+     * @return The stub server
+     */
+    public Server getServer() {
+        return server;
+    }
+
+    /**
+     * Change config values and reload the settings from the changed file
+     *
+     * @param values The config paths and their new values
+     * @throws IOException If the config file could not be written
+     */
+    public void reconfigure(Map<String, Object> values) throws IOException {
+        File file = new File(plugin.getDataFolder(), "config.yml");
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            config.set(value.getKey(), value.getValue());
+        }
+        config.save(file);
+
+        configManager.reloadConfig();
+    }
+
+    public MinecraftRats getPlugin() {
+        return plugin;
+    }
+
+    public RatManager getRatManager() {
+        return ratManager;
+    }
+
+    public RatSettings getSettings() {
+        return configManager.getSettings();
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public Location getSpawnLocation() {
+        return spawnLocation;
+    }
+
+    /**
+     * Create a rat standing at a position, tagged like a spawned rat
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @return The rat entity
+     */
+    public LivingEntity createRat(double x, double y, double z) {
+        LivingEntity rat = stub(LivingEntity.class);
+        stubPosition(rat, x, y, z);
+        when(rat.getType()).thenReturn(EntityType.SILVERFISH);
+        when(rat.isValid()).thenReturn(true);
+        when(rat.hasAI()).thenReturn(true);
+
+        PersistentDataContainer data = dataContainer();
+        when(rat.getPersistentDataContainer()).thenReturn(data);
+        RatData.tag(rat, "Brown");
+
+        return rat;
+    }
+
+    /**
+     * Create a block of a material
+     *
+     * @param material The block type
+     * @return The block
+     */
+    public Block block(Material material) {
+        Block block = stub(Block.class);
+        when(block.getType()).thenReturn(material);
+        when(block.getWorld()).thenReturn(world);
+        when(block.getBiome()).thenReturn(Biome.PLAINS);
+        when(block.getLightLevel()).thenReturn((byte) 4);
+        when(block.getLocation()).thenAnswer(invocation -> new Location(world, 100, 64, 100));
+        return block;
+    }
+
+    private void seedSpatialIndex(Random random) {
+        RatSettings settings = configManager.getSettings();
+
+        // A few predators and a field of dropped items around the rats
+        for (int i = 0; i < 16; i++) {
+            LivingEntity cat = stub(LivingEntity.class);
+            stubPosition(cat, random.nextDouble() * 256, 64, random.nextDouble() * 256);
+            when(cat.getType()).thenReturn(EntityType.CAT);
+            when(cat.isValid()).thenReturn(true);
+            ratManager.getSpatialIndex().track(cat, settings);
+        }
+
+        for (int i = 0; i < 256; i++) {
+            Item item = stub(Item.class);
+            stubPosition(item, random.nextDouble() * 256, 64, random.nextDouble() * 256);
+            when(item.getType()).thenReturn(EntityType.DROPPED_ITEM);
+            when(item.isValid()).thenReturn(true);
+            when(item.getItemStack()).thenReturn(new ItemStack(Material.BREAD, 1 + random.nextInt(8)));
+            ratManager.getSpatialIndex().track(item, settings);
+        }
+    }
+
+    private void stubPosition(Entity entity, double x, double y, double z) {
+        when(entity.getUniqueId()).thenReturn(UUID.randomUUID());
+        when(entity.getEntityId()).thenReturn(NEXT_ENTITY_ID.incrementAndGet());
+        when(entity.getWorld()).thenReturn(world);
+        when(entity.getLocation()).thenAnswer(invocation -> new Location(world, x, y, z));
+        when(entity.getLocation(any(Location.class))).thenAnswer(invocation -> {
+            Location location = invocation.getArgument(0);
+            location.setWorld(world);
+            location.setX(x);
+            location.setY(y);
+            location.setZ(z);
+            return location;
+        });
+    }
+
+    /**
+     * Create a map-backed persistent data container
+     *
+     * @return The data container
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static PersistentDataContainer dataContainer() {
+        Map<NamespacedKey, Object> values = new HashMap<>();
+        PersistentDataContainer data = stub(PersistentDataContainer.class);
+
+        Answer<Object> get = invocation -> values.get(invocation.<NamespacedKey>getArgument(0));
+        when(data.get(any(NamespacedKey.class), any(PersistentDataType.class))).thenAnswer(get);
+        when(data.has(any(NamespacedKey.class), any(PersistentDataType.class)))
+                .thenAnswer(invocation -> values.containsKey(invocation.<NamespacedKey>getArgument(0)));
+        doAnswer(invocation -> values.put(invocation.getArgument(0), invocation.getArgument(2)))
+                .when(data).set(any(NamespacedKey.class), any(PersistentDataType.class), any());
+
+        return data;
+    }
+
+    private static void installServer() {
+        if (Bukkit.getServer() != null) {
+            server = Bukkit.getServer();
+            return;
+        }
+
+        server = stub(Server.class);
+        when(server.getLogger()).thenReturn(LOGGER);
+        when(server.getName()).thenReturn("BenchmarkServer");
+        when(server.getVersion()).thenReturn("git-Spigot (MC: 1.19.4)");
+        when(server.getBukkitVersion()).thenReturn("1.19.4-R0.1-SNAPSHOT");
+        when(server.getScheduler()).thenReturn(idleScheduler());
+        stubItems(server);
+        Bukkit.setServer(server);
+    }
+
+    /**
+     * Create a scheduler that accepts tasks and never runs them, so code that
+     * schedules follow-up work (sounds, saves, flow field builds) can be
+     * benchmarked on its own. The load simulator swaps in a ticking one.
+     *
+     * @return The scheduler
+     */
+    private static BukkitScheduler idleScheduler() {
+        BukkitScheduler scheduler = stub(BukkitScheduler.class);
+        BukkitTask task = stub(BukkitTask.class);
+
+        when(scheduler.runTaskTimer(any(Plugin.class), any(Runnable.class), anyLong(), anyLong())).thenReturn(task);
+        when(scheduler.runTaskLater(any(Plugin.class), any(Runnable.class), anyLong())).thenReturn(task);
+        when(scheduler.runTask(any(Plugin.class), any(Runnable.class))).thenReturn(task);
+        when(scheduler.runTaskAsynchronously(any(Plugin.class), any(Runnable.class))).thenReturn(task);
+        return scheduler;
+    }
+
+    /**
+     * Stub what plain item stacks without meta need from the server to be
+     * compared, cloned and serialized into a rat's inventory
+     *
+     * @param server The stub server
+     */
+    private static void stubItems(Server server) {
+        ItemFactory itemFactory = stub(ItemFactory.class);
+        when(itemFactory.equals(any(), any())).thenAnswer(invocation ->
+                Objects.equals(invocation.<ItemMeta>getArgument(0), invocation.<ItemMeta>getArgument(1)));
+        when(server.getItemFactory()).thenReturn(itemFactory);
+
+        UnsafeValues unsafe = stub(UnsafeValues.class);
+        when(unsafe.getDataVersion()).thenReturn(3337);
+        when(unsafe.getMaterial(anyString(), anyInt()))
+                .thenAnswer(invocation -> Material.getMaterial(invocation.<String>getArgument(0)));
+        when(server.getUnsafe()).thenReturn(unsafe);
+    }
+
+    private static void writeConfig(File file) throws IOException {
+        YamlConfiguration config = new YamlConfiguration();
+        try (InputStream in = MinecraftRats.class.getClassLoader().getResourceAsStream("config.yml")) {
+            if (in != null) {
+                config = YamlConfiguration.loadConfiguration(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+        }
+
+        // Never let a benchmark spawn through the block-break path
+        config.set("block-spawning.chance", 0.0);
+        config.set("general.debug", false);
+        config.save(file);
+    }
+
+    static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+}
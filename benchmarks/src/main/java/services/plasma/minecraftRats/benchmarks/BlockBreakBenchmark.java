@@ -0,0 +1,58 @@
+package services.plasma.minecraftRats.benchmarks;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import services.plasma.minecraftRats.listeners.BlockBreakListener;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The block break handler, run for every block any player breaks. The
+ * fixture sets the spawn chance to 0, so this measures the filter only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockBreakBenchmark {
+
+    private BlockBreakListener listener;
+    private BlockBreakEvent otherBlock;
+    private BlockBreakEvent spawnBlock;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixture fixture = BenchmarkFixture.get();
+        listener = new BlockBreakListener(fixture.getPlugin());
+
+        Player player = mock(Player.class, withSettings().stubOnly());
+        otherBlock = new BlockBreakEvent(fixture.block(Material.STONE), player);
+        spawnBlock = new BlockBreakEvent(fixture.block(Material.DIRT), player);
+    }
+
+    @Benchmark
+    public void breakOtherBlock() {
+        listener.onBlockBreak(otherBlock);
+    }
+
+    @Benchmark
+    public void breakSpawnBlock() {
+        listener.onBlockBreak(spawnBlock);
+    }
+}
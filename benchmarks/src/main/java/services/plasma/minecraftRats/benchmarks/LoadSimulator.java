@@ -0,0 +1,471 @@
+package services.plasma.minecraftRats.benchmarks;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Silverfish;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.EntitySpawnEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Vector;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.listeners.BlockBreakListener;
+import services.plasma.minecraftRats.listeners.BlockChangeListener;
+import services.plasma.minecraftRats.listeners.EntityTrackingListener;
+import services.plasma.minecraftRats.listeners.RatListener;
+import services.plasma.minecraftRats.managers.RatManager;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+/**
+ * Headless load test. Drives the plugin through a simulated tick loop on a
+ * flat stub world: synthetic players walk around, mine blocks, fight rats
+ * and drop items, while the plugin's scheduled tasks run as they would on a
+ * server. Prints per-tick time percentiles for every task and listener.
+ *
+ * Usage: java -cp benchmarks.jar services.plasma.minecraftRats.benchmarks.LoadSimulator
+ *        [--players 200] [--ticks 6000] [--max-rats 5000] [--seed 1]
+ */
+public final class LoadSimulator {
+
+    private static final int GROUND_Y = 63;
+    private static final int WORLD_HEIGHT = 128;
+    private static final int WORLD_RADIUS = 1024;
+    private static final int ITEM_LIFETIME = 1200;
+
+    private final int playerCount;
+    private final int ticks;
+    private final Random random;
+
+    private final BenchmarkFixture fixture;
+    private final SimulatedScheduler scheduler;
+    private final TickStats stats;
+    private final World world;
+    private final UUID worldId;
+    private final Block[] column;
+    private final List<Material> spawnBlocks;
+
+    private final List<SimPlayer> players;
+    private final List<Player> playerHandles;
+    private final List<SimRat> rats;
+    private final ArrayDeque<SimItem> items;
+
+    private BlockBreakListener blockBreakListener;
+    private BlockChangeListener blockChangeListener;
+    private RatListener ratListener;
+    private EntityTrackingListener trackingListener;
+
+    private int ratsSpawned;
+    private int ratsKilled;
+    private int itemsDropped;
+
+    private LoadSimulator(int playerCount, int ticks, int maxRats, long seed) throws Exception {
+        this.playerCount = playerCount;
+        this.ticks = ticks;
+        this.random = new Random(seed);
+        this.fixture = BenchmarkFixture.get();
+        this.scheduler = new SimulatedScheduler();
+        this.stats = new TickStats();
+        this.worldId = UUID.randomUUID();
+        this.world = BenchmarkFixture.stub(World.class);
+        this.column = new Block[WORLD_HEIGHT];
+        this.spawnBlocks = loadSpawnBlocks();
+        this.players = new ArrayList<>();
+        this.playerHandles = new ArrayList<>();
+        this.rats = new ArrayList<>();
+        this.items = new ArrayDeque<>();
+
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("spawning.max-rats", maxRats);
+        overrides.put("spawning.enabled-worlds", Collections.singletonList("world"));
+        overrides.put("block-spawning.chance", 0.05);
+        fixture.reconfigure(overrides);
+
+        Server server = fixture.getServer();
+        scheduler.install(server);
+        stubWorld(server);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int players = 200;
+        int ticks = 6000;
+        int maxRats = 5000;
+        long seed = 1;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--players":
+                    players = Integer.parseInt(value);
+                    break;
+                case "--ticks":
+                    ticks = Integer.parseInt(value);
+                    break;
+                case "--max-rats":
+                    maxRats = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+
+        new LoadSimulator(players, ticks, maxRats, seed).run();
+        System.exit(0);
+    }
+
+    private void run() {
+        MinecraftRats plugin = fixture.getPlugin();
+        RatManager ratManager = fixture.getRatManager();
+
+        blockBreakListener = new BlockBreakListener(plugin);
+        blockChangeListener = new BlockChangeListener(plugin);
+        ratListener = new RatListener(plugin);
+        trackingListener = new EntityTrackingListener(plugin);
+
+        for (int i = 0; i < playerCount; i++) {
+            SimPlayer player = new SimPlayer(
+                    (random.nextDouble() * 2 - 1) * WORLD_RADIUS, (random.nextDouble() * 2 - 1) * WORLD_RADIUS);
+            players.add(player);
+            playerHandles.add(player.handle);
+        }
+
+        ratManager.startSpawningTask();
+        ratManager.getBehaviorScheduler().start();
+
+        long started = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            for (SimPlayer player : players) {
+                player.tick();
+            }
+            expireItems();
+            scheduler.tick(stats);
+            stats.endTick();
+
+            if ((tick + 1) % 1200 == 0) {
+                System.out.println("tick " + (tick + 1) + ": " + ratManager.getRatCount() + " rats, "
+                        + ratManager.getSpatialIndex().size() + " tracked entities");
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        ratManager.shutdown();
+        ratManager.getBehaviorScheduler().stop();
+
+        System.out.println();
+        System.out.println(playerCount + " players, " + ticks + " ticks in " + (elapsed / 1000000) + " ms");
+        System.out.println("rats spawned " + ratsSpawned + ", killed " + ratsKilled + ", alive " + ratManager.getRatCount()
+                + ", items dropped " + itemsDropped);
+        System.out.println();
+        stats.print(System.out);
+    }
+
+    private void expireItems() {
+        long now = scheduler.getCurrentTick();
+        while (!items.isEmpty() && items.peek().expiresAt <= now) {
+            items.poll().state.valid = false;
+        }
+    }
+
+    private void mine(SimPlayer player) {
+        // Half of the mined blocks are rat spawn blocks
+        player.mining = random.nextBoolean() && !spawnBlocks.isEmpty()
+                ? spawnBlocks.get(random.nextInt(spawnBlocks.size())) : Material.STONE;
+
+        BlockBreakEvent event = new BlockBreakEvent(player.minedBlock, player.handle);
+
+        long start = System.nanoTime();
+        blockBreakListener.onBlockBreak(event);
+        stats.record("BlockBreakListener", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        blockChangeListener.onBlockBreak(event);
+        stats.record("BlockChangeListener", System.nanoTime() - start);
+    }
+
+    private void fight(SimPlayer player) {
+        if (rats.isEmpty()) {
+            return;
+        }
+
+        int index = random.nextInt(rats.size());
+        SimRat simRat = rats.get(index);
+        LivingEntity rat = simRat.handle;
+        if (!simRat.state.valid) {
+            removeRat(index);
+            return;
+        }
+
+        EntityDamageByEntityEvent damage = new EntityDamageByEntityEvent(player.handle, rat,
+                EntityDamageEvent.DamageCause.ENTITY_ATTACK, 4.0);
+        long start = System.nanoTime();
+        ratListener.onEntityDamage(damage);
+        stats.record("RatListener", System.nanoTime() - start);
+
+        if (random.nextInt(3) == 0) {
+            EntityDeathEvent death = new EntityDeathEvent(rat, new ArrayList<ItemStack>());
+            start = System.nanoTime();
+            ratListener.onEntityDeath(death);
+            stats.record("RatListener", System.nanoTime() - start);
+
+            simRat.state.valid = false;
+            removeRat(index);
+            ratsKilled++;
+        }
+    }
+
+    private void dropItem(SimPlayer player) {
+        SimEntity state = new SimEntity(player.state.x + random.nextDouble() * 4 - 2, GROUND_Y + 1,
+                player.state.z + random.nextDouble() * 4 - 2);
+        Item item = BenchmarkFixture.stub(Item.class);
+        stubEntity(item, state, EntityType.DROPPED_ITEM);
+        ItemStack stack = new ItemStack(Material.BREAD, 1 + random.nextInt(8));
+        when(item.getItemStack()).thenReturn(stack);
+
+        items.add(new SimItem(state, scheduler.getCurrentTick() + ITEM_LIFETIME));
+        itemsDropped++;
+
+        long start = System.nanoTime();
+        trackingListener.onEntitySpawn(new EntitySpawnEvent(item));
+        stats.record("EntityTrackingListener", System.nanoTime() - start);
+    }
+
+    private void removeRat(int index) {
+        int last = rats.size() - 1;
+        rats.set(index, rats.get(last));
+        rats.remove(last);
+    }
+
+    private LivingEntity spawnRat(Location location) {
+        SimEntity state = new SimEntity(location.getX(), location.getY(), location.getZ());
+        Silverfish rat = BenchmarkFixture.stub(Silverfish.class);
+        stubEntity(rat, state, EntityType.SILVERFISH);
+        when(rat.getPersistentDataContainer()).thenReturn(BenchmarkFixture.dataContainer());
+        when(rat.hasAI()).thenReturn(true);
+
+        rats.add(new SimRat(rat, state));
+        ratsSpawned++;
+        return rat;
+    }
+
+    private void stubEntity(Entity entity, SimEntity state, EntityType type) {
+        when(entity.getUniqueId()).thenReturn(state.id);
+        when(entity.getEntityId()).thenReturn(state.entityId);
+        when(entity.getType()).thenReturn(type);
+        when(entity.getWorld()).thenReturn(world);
+        when(entity.isValid()).thenAnswer(invocation -> state.valid);
+        when(entity.getLocation()).thenAnswer(invocation -> new Location(world, state.x, state.y, state.z));
+        when(entity.getLocation(any(Location.class))).thenAnswer(invocation -> {
+            Location location = invocation.getArgument(0);
+            location.setWorld(world);
+            location.setX(state.x);
+            location.setY(state.y);
+            location.setZ(state.z);
+            return location;
+        });
+        doAnswer(invocation -> {
+            state.valid = false;
+            return null;
+        }).when(entity).remove();
+        doAnswer(invocation -> {
+            // Approximate the distance covered before the next behavior visit
+            Vector velocity = invocation.getArgument(0);
+            state.x += velocity.getX() * 4;
+            state.z += velocity.getZ() * 4;
+            return null;
+        }).when(entity).setVelocity(any(Vector.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubWorld(Server server) {
+        when(world.getUID()).thenReturn(worldId);
+        when(world.getName()).thenReturn("world");
+        when(world.getMinHeight()).thenReturn(0);
+        when(world.getMaxHeight()).thenReturn(WORLD_HEIGHT);
+        when(world.getPlayers()).thenReturn(playerHandles);
+        doReturn(playerHandles).when(server).getOnlinePlayers();
+        when(world.isChunkLoaded(anyInt(), anyInt())).thenReturn(true);
+
+        // Every chunk is the same flat stone floor with air above it
+        ChunkSnapshot snapshot = BenchmarkFixture.stub(ChunkSnapshot.class);
+        when(snapshot.getHighestBlockYAt(anyInt(), anyInt())).thenReturn(GROUND_Y);
+        when(snapshot.getBlockType(anyInt(), anyInt(), anyInt())).thenAnswer(invocation ->
+                invocation.<Integer>getArgument(1) <= GROUND_Y ? Material.STONE : Material.AIR);
+        when(snapshot.getBlockEmittedLight(anyInt(), anyInt(), anyInt())).thenReturn(0);
+        when(snapshot.getBlockSkyLight(anyInt(), anyInt(), anyInt())).thenReturn(0);
+        when(snapshot.getBiome(anyInt(), anyInt(), anyInt())).thenReturn(Biome.PLAINS);
+
+        Chunk chunk = BenchmarkFixture.stub(Chunk.class);
+        when(chunk.getChunkSnapshot(eq(true), eq(true), eq(false))).thenReturn(snapshot);
+        when(world.getChunkAt(anyInt(), anyInt())).thenReturn(chunk);
+
+        for (int y = 0; y < WORLD_HEIGHT; y++) {
+            column[y] = fixture.block(y <= GROUND_Y ? Material.STONE : Material.AIR);
+        }
+        for (int y = 0; y < WORLD_HEIGHT; y++) {
+            when(column[y].getRelative(0, -1, 0)).thenReturn(column[Math.max(0, y - 1)]);
+            when(column[y].getRelative(0, 1, 0)).thenReturn(column[Math.min(WORLD_HEIGHT - 1, y + 1)]);
+        }
+        when(world.getBlockAt(any(Location.class))).thenAnswer(invocation ->
+                column[Math.max(0, Math.min(WORLD_HEIGHT - 1, invocation.<Location>getArgument(0).getBlockY()))]);
+
+        when(world.spawn(any(Location.class), eq(Silverfish.class), any(org.bukkit.util.Consumer.class)))
+                .thenAnswer(invocation -> {
+                    LivingEntity rat = spawnRat(invocation.getArgument(0));
+                    invocation.<org.bukkit.util.Consumer<Silverfish>>getArgument(2).accept((Silverfish) rat);
+                    return rat;
+                });
+
+        when(server.getWorld(anyString())).thenAnswer(invocation ->
+                "world".equals(invocation.getArgument(0)) ? world : null);
+        when(server.getWorld(any(UUID.class))).thenAnswer(invocation ->
+                worldId.equals(invocation.getArgument(0)) ? world : null);
+        when(server.getWorlds()).thenReturn(Collections.singletonList(world));
+    }
+
+    private static List<Material> loadSpawnBlocks() throws Exception {
+        List<Material> materials = new ArrayList<>();
+        try (InputStream in = MinecraftRats.class.getClassLoader().getResourceAsStream("config.yml")) {
+            if (in == null) {
+                return materials;
+            }
+
+            YamlConfiguration config = YamlConfiguration.loadConfiguration(new InputStreamReader(in, StandardCharsets.UTF_8));
+            for (String name : config.getStringList("block-spawning.blocks")) {
+                Material material = Material.matchMaterial(name);
+                if (material != null) {
+                    materials.add(material);
+                }
+            }
+        }
+        return materials;
+    }
+
+    /**
+     * Position and liveness of a simulated entity
+     */
+    private static class SimEntity {
+        private static int nextEntityId;
+
+        private final UUID id = UUID.randomUUID();
+        private final int entityId = ++nextEntityId;
+        private double x;
+        private double y;
+        private double z;
+        private volatile boolean valid = true;
+
+        private SimEntity(double x, double y, double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+    /**
+     * A spawned rat and its simulated state
+     */
+    private static class SimRat {
+        private final LivingEntity handle;
+        private final SimEntity state;
+
+        private SimRat(LivingEntity handle, SimEntity state) {
+            this.handle = handle;
+            this.state = state;
+        }
+    }
+
+    /**
+     * A dropped item and the tick it despawns at
+     */
+    private static class SimItem {
+        private final SimEntity state;
+        private final long expiresAt;
+
+        private SimItem(SimEntity state, long expiresAt) {
+            this.state = state;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A synthetic player that wanders, mines, fights and drops items
+     */
+    private class SimPlayer {
+        private final SimEntity state;
+        private final Player handle;
+        private final Block minedBlock;
+        private double heading;
+        private Material mining = Material.STONE;
+
+        private SimPlayer(double x, double z) {
+            this.state = new SimEntity(x, GROUND_Y + 1, z);
+            this.handle = BenchmarkFixture.stub(Player.class);
+            this.heading = random.nextDouble() * Math.PI * 2;
+            stubEntity(handle, state, EntityType.PLAYER);
+            when(handle.isOnline()).thenReturn(true);
+
+            this.minedBlock = BenchmarkFixture.stub(Block.class);
+            when(minedBlock.getType()).thenAnswer(invocation -> mining);
+            when(minedBlock.getWorld()).thenReturn(world);
+            when(minedBlock.getX()).thenAnswer(invocation -> (int) Math.floor(state.x) + 1);
+            when(minedBlock.getY()).thenReturn(GROUND_Y);
+            when(minedBlock.getZ()).thenAnswer(invocation -> (int) Math.floor(state.z));
+            when(minedBlock.getLocation()).thenAnswer(invocation ->
+                    new Location(world, Math.floor(state.x) + 1, GROUND_Y, Math.floor(state.z)));
+        }
+
+        private void tick() {
+            // Walk at roughly sprinting speed, turning now and then
+            if (random.nextInt(100) == 0) {
+                heading = random.nextDouble() * Math.PI * 2;
+            }
+            state.x += Math.cos(heading) * 0.25;
+            state.z += Math.sin(heading) * 0.25;
+
+            if (random.nextInt(4) == 0) {
+                mine(this);
+            }
+            if (random.nextInt(40) == 0) {
+                fight(this);
+            }
+            if (random.nextInt(100) == 0) {
+                dropItem(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package services.plasma.minecraftRats.benchmarks;
+
+import org.bukkit.entity.LivingEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import services.plasma.minecraftRats.entities.RatEntity;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One behavior visit, run once per rat every behavior interval. Rats are
+ * visited round-robin like the scheduler does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatBehaviorBenchmark {
+
+    @Param({"64", "1024"})
+    private int population;
+
+    private LivingEntity[] rats;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixture fixture = BenchmarkFixture.get();
+        Random random = new Random(7);
+
+        rats = new LivingEntity[population];
+        for (int i = 0; i < population; i++) {
+            rats[i] = fixture.createRat(random.nextDouble() * 256, 64, random.nextDouble() * 256);
+            fixture.getRatManager().registerLoadedRat(rats[i]);
+        }
+    }
+
+    @Benchmark
+    public void applyRatBehavior() {
+        RatEntity.applyRatBehavior(rats[cursor]);
+        if (++cursor == rats.length) {
+            cursor = 0;
+        }
+    }
+}
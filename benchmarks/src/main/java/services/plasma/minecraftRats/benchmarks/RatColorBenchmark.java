@@ -0,0 +1,40 @@
+package services.plasma.minecraftRats.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import services.plasma.minecraftRats.config.RatSettings;
+import services.plasma.minecraftRats.managers.RatManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Color selection, run once for every spawned rat
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatColorBenchmark {
+
+    private RatManager ratManager;
+
+    @Setup
+    public void setUp() {
+        ratManager = BenchmarkFixture.get().getRatManager();
+    }
+
+    @Benchmark
+    public RatSettings.RatColor getRandomRatColor() {
+        return ratManager.getRandomRatColor();
+    }
+}
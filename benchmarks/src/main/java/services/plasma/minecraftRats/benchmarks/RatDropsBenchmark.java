@@ -0,0 +1,51 @@
+package services.plasma.minecraftRats.benchmarks;
+
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import services.plasma.minecraftRats.managers.RatManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drop table rolls, run once for every rat death
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatDropsBenchmark {
+
+    private RatManager ratManager;
+    private List<ItemStack> drops;
+
+    @Setup
+    public void setUp() {
+        ratManager = BenchmarkFixture.get().getRatManager();
+        drops = new ArrayList<>();
+    }
+
+    @Benchmark
+    public List<ItemStack> getRatDrops() {
+        return ratManager.getRatDrops();
+    }
+
+    @Benchmark
+    public List<ItemStack> addRatDropsToEventList() {
+        drops.clear();
+        ratManager.addRatDrops(drops);
+        return drops;
+    }
+}
@@ -0,0 +1,295 @@
+package services.plasma.minecraftRats.benchmarks;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.util.Vector;
+import org.mockito.stubbing.Answer;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.managers.RatManager;
+import services.plasma.minecraftRats.managers.RatRegistry;
+import services.plasma.minecraftRats.scheduler.RatTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+/**
+ * Concurrency check for region-threaded servers. Runs the registry, the
+ * behavior scheduler and the removal queue on a {@link StubRegionScheduler}
+ * while region threads keep unloading, reloading and killing rats. Afterwards
+ * the shared state must still be consistent, nothing may have thrown, and no
+ * rat may have been changed from a thread that does not own it.
+ *
+ * Usage: java -cp benchmarks.jar services.plasma.minecraftRats.benchmarks.RegionSimulator
+ *        [--regions 8] [--rats 5000] [--players 16] [--ticks 600] [--seed 1]
+ */
+public final class RegionSimulator {
+
+    private static final double AREA = 2048;
+    private static final long TICK_MILLIS = 5;
+
+    private final int ratCount;
+    private final int playerCount;
+    private final int ticks;
+    private final Random random;
+
+    private final BenchmarkFixture fixture;
+    private final StubRegionScheduler scheduler;
+    private final World world;
+    private final AtomicInteger violations;
+    private final List<SimRat> rats;
+
+    private RegionSimulator(int regions, int ratCount, int playerCount, int ticks, long seed) throws Exception {
+        this.ratCount = ratCount;
+        this.playerCount = playerCount;
+        this.ticks = ticks;
+        this.random = new Random(seed);
+        this.fixture = BenchmarkFixture.get();
+        this.scheduler = new StubRegionScheduler(regions, TICK_MILLIS);
+        this.world = fixture.getWorld();
+        this.violations = new AtomicInteger();
+        this.rats = new ArrayList<>();
+
+        // Item theft touches item entities this simulation does not place in regions
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put("rat.steal-items", false);
+        fixture.reconfigure(overrides);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int regions = 8;
+        int rats = 5000;
+        int players = 16;
+        int ticks = 600;
+        long seed = 1;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--regions":
+                    regions = Integer.parseInt(value);
+                    break;
+                case "--rats":
+                    rats = Integer.parseInt(value);
+                    break;
+                case "--players":
+                    players = Integer.parseInt(value);
+                    break;
+                case "--ticks":
+                    ticks = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    return;
+            }
+        }
+
+        boolean passed = new RegionSimulator(regions, rats, players, ticks, seed).run();
+        System.exit(passed ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        MinecraftRats plugin = fixture.getPlugin();
+        when(plugin.getScheduler()).thenReturn(scheduler);
+
+        RatManager ratManager = fixture.getRatManager();
+        RatRegistry registry = ratManager.getRegistry();
+        registry.clear();
+
+        stubPlayers();
+        for (int i = 0; i < ratCount; i++) {
+            rats.add(createRat(random.nextDouble() * AREA, random.nextDouble() * AREA));
+        }
+
+        // Register every rat on the thread that owns it, like entities loading with their chunks
+        CountDownLatch registered = new CountDownLatch(rats.size());
+        for (SimRat rat : rats) {
+            scheduler.runFor(rat.handle, () -> {
+                ratManager.registerLoadedRat(rat.handle);
+                registered.countDown();
+            }, registered::countDown);
+        }
+        if (!registered.await(30, TimeUnit.SECONDS)) {
+            System.out.println("FAIL: rats were not registered within 30 seconds");
+            return false;
+        }
+
+        ratManager.getBehaviorScheduler().start();
+
+        AtomicInteger removed = new AtomicInteger();
+        AtomicInteger churnTicks = new AtomicInteger();
+        RatTask churn = scheduler.runTimer(() -> {
+            // Unload and reload a few rats on their own threads
+            for (int i = 0; i < 20; i++) {
+                LivingEntity rat = rats.get(random.nextInt(rats.size())).handle;
+                scheduler.runFor(rat, () -> {
+                    registry.unregister(rat);
+                    ratManager.registerLoadedRat(rat);
+                }, null);
+            }
+
+            // Once a second, kill everything around a random point through the removal queue
+            if (churnTicks.incrementAndGet() % 20 == 0) {
+                List<LivingEntity> targets = registry.snapshotNear(world,
+                        random.nextDouble() * AREA, random.nextDouble() * AREA, 64);
+                ratManager.removeRats(targets, null).thenAccept(removed::addAndGet);
+            }
+        }, 1L, 1L);
+
+        long started = System.nanoTime();
+        Thread.sleep(ticks * TICK_MILLIS);
+        churn.cancel();
+        ratManager.getBehaviorScheduler().stop();
+
+        // Let the tasks already handed to region threads land
+        Thread.sleep(50 * TICK_MILLIS);
+        ratManager.shutdown();
+        scheduler.shutdown();
+        long elapsed = System.nanoTime() - started;
+
+        List<String> problems = check(registry);
+
+        System.out.println(rats.size() + " rats, " + playerCount + " players, " + ticks + " ticks in "
+                + (elapsed / 1000000) + " ms");
+        System.out.println("behavior visits " + plugin.getMetrics().getRatBehavior().getTotal().getCount()
+                + ", removed " + removed.get() + ", alive " + registry.size()
+                + ", hibernating " + registry.getHibernatingCount());
+
+        if (problems.isEmpty()) {
+            System.out.println("PASS");
+            return true;
+        }
+
+        for (String problem : problems) {
+            System.out.println("FAIL: " + problem);
+        }
+        return false;
+    }
+
+    private List<String> check(RatRegistry registry) {
+        List<String> problems = new ArrayList<>();
+
+        int alive = 0;
+        int missing = 0;
+        int stale = 0;
+        for (SimRat rat : rats) {
+            boolean registered = registry.contains(rat.handle);
+            if (registered != registry.contains(rat.handle.getUniqueId())) {
+                problems.add("entity id and UUID indexes disagree for a rat");
+            }
+
+            if (rat.valid.get()) {
+                alive++;
+                if (!registered) {
+                    missing++;
+                }
+            } else if (registered) {
+                stale++;
+            }
+        }
+
+        if (missing > 0) {
+            problems.add(missing + " live rats are missing from the registry");
+        }
+        if (stale > 0) {
+            problems.add(stale + " removed rats are still registered");
+        }
+        if (registry.size() != alive) {
+            problems.add("registry holds " + registry.size() + " rats but " + alive + " are alive");
+        }
+        if (registry.count(world) != registry.size()) {
+            problems.add("world count " + registry.count(world) + " does not match registry size " + registry.size());
+        }
+        if (registry.getHibernatingCount() < 0 || registry.getHibernatingCount() > registry.size()) {
+            problems.add("hibernating count " + registry.getHibernatingCount() + " is out of range");
+        }
+        if (violations.get() > 0) {
+            problems.add(violations.get() + " rat changes ran on a thread that does not own the rat");
+        }
+
+        List<Throwable> failures = scheduler.getFailures();
+        if (!failures.isEmpty()) {
+            problems.add(failures.size() + " scheduled tasks threw, first: " + failures.get(0));
+            failures.get(0).printStackTrace(System.out);
+        }
+        return problems;
+    }
+
+    private SimRat createRat(double x, double z) {
+        LivingEntity rat = fixture.createRat(x, 64, z);
+        SimRat sim = new SimRat(rat);
+        when(rat.isValid()).thenAnswer(invocation -> sim.valid.get());
+
+        // Folia throws when an entity is changed off its region thread; count those instead
+        Answer<Object> owned = invocation -> {
+            if (!scheduler.isOwnedByCurrentThread(x, z)) {
+                violations.incrementAndGet();
+            }
+            return null;
+        };
+        doAnswer(owned).when(rat).setVelocity(any(Vector.class));
+        doAnswer(owned).when(rat).setAI(anyBoolean());
+        doAnswer(owned).when(rat).setSilent(anyBoolean());
+        doAnswer(invocation -> {
+            owned.answer(invocation);
+            sim.valid.set(false);
+            return null;
+        }).when(rat).remove();
+
+        return sim;
+    }
+
+    private void stubPlayers() {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < playerCount; i++) {
+            double x = random.nextDouble() * AREA;
+            double z = random.nextDouble() * AREA;
+
+            Player player = BenchmarkFixture.stub(Player.class);
+            when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+            when(player.getWorld()).thenReturn(world);
+            when(player.getLocation(any(Location.class))).thenAnswer(invocation -> {
+                Location location = invocation.getArgument(0);
+                location.setWorld(world);
+                location.setX(x);
+                location.setY(64);
+                location.setZ(z);
+                return location;
+            });
+            players.add(player);
+        }
+
+        doReturn(players).when(fixture.getServer()).getOnlinePlayers();
+    }
+
+    /**
+     * A simulated rat and whether it is still in the world
+     */
+    private static class SimRat {
+        private final LivingEntity handle;
+        private final AtomicBoolean valid;
+
+        private SimRat(LivingEntity handle) {
+            this.handle = handle;
+            this.valid = new AtomicBoolean(true);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package services.plasma.minecraftRats.benchmarks;
+
+import org.bukkit.Server;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * A BukkitScheduler stub driven by the load simulator's tick loop. Tasks run
+ * on the calling thread when {@link #tick} is called, and the time spent in
+ * each one is reported to {@link TickStats} under the name of its owning class.
+ */
+public class SimulatedScheduler {
+
+    private final List<Task> tasks;
+    private final ConcurrentLinkedQueue<Task> incoming;
+    private long currentTick;
+
+    public SimulatedScheduler() {
+        this.tasks = new ArrayList<>();
+        this.incoming = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Route the stub server's scheduler to this simulator
+     *
+     * @param server The stub server
+     */
+    public void install(Server server) {
+        BukkitScheduler scheduler = BenchmarkFixture.stub(BukkitScheduler.class);
+
+        when(scheduler.runTaskTimer(any(Plugin.class), any(Runnable.class), anyLong(), anyLong()))
+                .thenAnswer(invocation -> schedule(invocation.getArgument(1),
+                        invocation.<Long>getArgument(2), invocation.<Long>getArgument(3)));
+        when(scheduler.runTaskLater(any(Plugin.class), any(Runnable.class), anyLong()))
+                .thenAnswer(invocation -> schedule(invocation.getArgument(1), invocation.<Long>getArgument(2), -1));
+        when(scheduler.runTask(any(Plugin.class), any(Runnable.class)))
+                .thenAnswer(invocation -> schedule(invocation.getArgument(1), 0, -1));
+        when(scheduler.runTaskAsynchronously(any(Plugin.class), any(Runnable.class)))
+                .thenAnswer(invocation -> {
+                    ForkJoinPool.commonPool().execute(invocation.getArgument(1));
+                    return BenchmarkFixture.stub(BukkitTask.class);
+                });
+
+        when(server.getScheduler()).thenReturn(scheduler);
+    }
+
+    /**
+     * Run every task that is due this tick
+     *
+     * @param stats The statistics to record task times in
+     */
+    public void tick(TickStats stats) {
+        currentTick++;
+
+        Task task;
+        while ((task = incoming.poll()) != null) {
+            tasks.add(task);
+        }
+
+        // Tasks scheduled while this tick runs start on the next tick, like Bukkit
+        List<Task> due = new ArrayList<>();
+        Iterator<Task> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            task = iterator.next();
+            if (task.cancelled) {
+                iterator.remove();
+            } else if (task.nextRun <= currentTick) {
+                due.add(task);
+                if (task.period <= 0) {
+                    iterator.remove();
+                } else {
+                    task.nextRun = currentTick + task.period;
+                }
+            }
+        }
+
+        for (Task run : due) {
+            if (run.cancelled) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            run.runnable.run();
+            stats.record(run.name, System.nanoTime() - start);
+        }
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    private BukkitTask schedule(Runnable runnable, long delay, long period) {
+        Task task = new Task(runnable, currentTick + Math.max(1, delay), period);
+        incoming.add(task);
+
+        BukkitTask handle = BenchmarkFixture.stub(BukkitTask.class);
+        when(handle.isCancelled()).thenAnswer(invocation -> task.cancelled);
+        doAnswer(invocation -> {
+            task.cancelled = true;
+            return null;
+        }).when(handle).cancel();
+        return handle;
+    }
+
+    private static String nameOf(Runnable runnable, long period) {
+        String name = runnable.getClass().getSimpleName();
+        int lambda = name.indexOf("$$Lambda");
+        if (lambda > 0) {
+            name = name.substring(0, lambda);
+        }
+        return period > 0 ? name + " task" : name + " callback";
+    }
+
+    /**
+     * A scheduled task and when it runs next
+     */
+    private static class Task {
+        private final Runnable runnable;
+        private final String name;
+        private final long period;
+        private long nextRun;
+        private volatile boolean cancelled;
+
+        private Task(Runnable runnable, long nextRun, long period) {
+            this.runnable = runnable;
+            this.name = nameOf(runnable, period);
+            this.period = period;
+            this.nextRun = nextRun;
+        }
+    }
+}
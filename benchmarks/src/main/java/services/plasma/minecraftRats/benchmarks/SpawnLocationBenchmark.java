@@ -0,0 +1,51 @@
+package services.plasma.minecraftRats.benchmarks;
+
+import org.bukkit.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import services.plasma.minecraftRats.config.RatSettings;
+import services.plasma.minecraftRats.managers.RatManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spawn location checks, run for every natural spawn attempt
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpawnLocationBenchmark {
+
+    private RatManager ratManager;
+    private RatSettings settings;
+    private Location location;
+
+    @Setup
+    public void setUp() {
+        BenchmarkFixture fixture = BenchmarkFixture.get();
+        ratManager = fixture.getRatManager();
+        settings = fixture.getSettings();
+        location = fixture.getSpawnLocation();
+    }
+
+    @Benchmark
+    public boolean isValidSpawnLocation() {
+        return ratManager.isValidSpawnLocation(location);
+    }
+
+    @Benchmark
+    public boolean canSpawnAt() {
+        return ratManager.canSpawnAt(location, settings);
+    }
+}
@@ -0,0 +1,163 @@
+package services.plasma.minecraftRats.benchmarks;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import services.plasma.minecraftRats.scheduler.RatScheduler;
+import services.plasma.minecraftRats.scheduler.RatTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A region-threaded scheduler for running the plugin without Folia. The
+ * world is cut into 128-block regions that are spread over a fixed number
+ * of region threads, next to one global thread. Tasks for a location or an
+ * entity run on the thread of its region, and anything a task throws is
+ * collected instead of being lost on a pool thread.
+ */
+public class StubRegionScheduler implements RatScheduler {
+
+    private static final int REGION_SHIFT = 7;
+    private static final ThreadLocal<Integer> CURRENT_REGION = new ThreadLocal<>();
+
+    private final long tickMillis;
+    private final ScheduledExecutorService global;
+    private final ScheduledExecutorService[] regions;
+    private final List<Throwable> failures;
+
+    /**
+     * @param regionThreads The number of region threads
+     * @param tickMillis The length of a tick in milliseconds
+     */
+    public StubRegionScheduler(int regionThreads, long tickMillis) {
+        this.tickMillis = tickMillis;
+        this.global = executor("global", -1);
+        this.regions = new ScheduledExecutorService[regionThreads];
+        for (int i = 0; i < regionThreads; i++) {
+            regions[i] = executor("region-" + i, i);
+        }
+        this.failures = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public void run(Runnable task) {
+        global.schedule(guard(task), tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public RatTask runLater(Runnable task, long delay) {
+        ScheduledFuture<?> future = global.schedule(guard(task), Math.max(1L, delay) * tickMillis, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+
+    @Override
+    public RatTask runTimer(Runnable task, long delay, long period) {
+        ScheduledFuture<?> future = global.scheduleAtFixedRate(guard(task),
+                Math.max(1L, delay) * tickMillis, Math.max(1L, period) * tickMillis, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+
+    @Override
+    public void runAt(Location location, Runnable task) {
+        regions[regionOf(location.getX(), location.getZ())].schedule(guard(task), tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void runFor(Entity entity, Runnable task, Runnable retired) {
+        Location location = entity.getLocation();
+        regions[regionOf(location.getX(), location.getZ())].schedule(guard(() -> {
+            if (entity.isValid()) {
+                task.run();
+            } else if (retired != null) {
+                retired.run();
+            }
+        }), tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        ForkJoinPool.commonPool().execute(guard(task));
+    }
+
+    /**
+     * Check if the calling thread owns a position, like Folia's ownership checks
+     *
+     * @param x The X coordinate
+     * @param z The Z coordinate
+     * @return True if called from the region thread that owns the position
+     */
+    public boolean isOwnedByCurrentThread(double x, double z) {
+        Integer region = CURRENT_REGION.get();
+        return region != null && region == regionOf(x, z);
+    }
+
+    /**
+     * Get everything the scheduled tasks threw so far
+     *
+     * @return A copy of the failures
+     */
+    public List<Throwable> getFailures() {
+        synchronized (failures) {
+            return new ArrayList<>(failures);
+        }
+    }
+
+    /**
+     * Stop every thread and wait for running tasks to finish
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void shutdown() throws InterruptedException {
+        global.shutdownNow();
+        for (ScheduledExecutorService region : regions) {
+            region.shutdownNow();
+        }
+
+        global.awaitTermination(5, TimeUnit.SECONDS);
+        for (ScheduledExecutorService region : regions) {
+            region.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private int regionOf(double x, double z) {
+        int regionX = (int) Math.floor(x) >> REGION_SHIFT;
+        int regionZ = (int) Math.floor(z) >> REGION_SHIFT;
+        return Math.floorMod(regionX * 31 + regionZ, regions.length);
+    }
+
+    private Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                failures.add(t);
+            }
+        };
+    }
+
+    private static ScheduledExecutorService executor(String name, int region) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(() -> {
+                if (region >= 0) {
+                    CURRENT_REGION.set(region);
+                }
+                runnable.run();
+            }, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,97 @@
+package services.plasma.minecraftRats.benchmarks;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-tick time distributions for the load simulator. Times recorded under
+ * the same name within one tick are summed before they enter the distribution.
+ */
+public class TickStats {
+
+    private static final String TOTAL = "total";
+
+    private final Map<String, Series> series;
+    private final Map<String, Long> currentTick;
+
+    public TickStats() {
+        this.series = new LinkedHashMap<>();
+        this.currentTick = new LinkedHashMap<>();
+        this.series.put(TOTAL, new Series());
+    }
+
+    /**
+     * Record time spent in a task or listener during the current tick
+     *
+     * @param name The task or listener name
+     * @param nanos The time spent in nanoseconds
+     */
+    public void record(String name, long nanos) {
+        Long current = currentTick.get(name);
+        currentTick.put(name, current == null ? nanos : current + nanos);
+    }
+
+    /**
+     * Close the current tick and add its times to the distributions
+     */
+    public void endTick() {
+        long total = 0;
+        for (Map.Entry<String, Long> entry : currentTick.entrySet()) {
+            Series values = series.get(entry.getKey());
+            if (values == null) {
+                values = new Series();
+                series.put(entry.getKey(), values);
+            }
+            values.add(entry.getValue());
+            total += entry.getValue();
+        }
+        series.get(TOTAL).add(total);
+        currentTick.clear();
+    }
+
+    /**
+     * Print a percentile table in microseconds
+     *
+     * @param out The stream to print to
+     */
+    public void print(PrintStream out) {
+        out.println(String.format("%-32s %8s %10s %10s %10s %10s", "name", "ticks", "p50 us", "p90 us", "p99 us", "max us"));
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            long[] values = entry.getValue().sorted();
+            if (values.length == 0) {
+                continue;
+            }
+            out.println(String.format("%-32s %8d %10.1f %10.1f %10.1f %10.1f", entry.getKey(), values.length,
+                    percentile(values, 0.50), percentile(values, 0.90), percentile(values, 0.99),
+                    values[values.length - 1] / 1000.0));
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000.0;
+    }
+
+    /**
+     * Growable array of per-tick times
+     */
+    private static class Series {
+        private long[] values = new long[1024];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
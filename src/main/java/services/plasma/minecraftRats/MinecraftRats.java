@@ -4,33 +4,66 @@ import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 import services.plasma.minecraftRats.commands.RatsCommand;
 import services.plasma.minecraftRats.config.ConfigManager;
+import services.plasma.minecraftRats.config.RatSettings;
+import services.plasma.minecraftRats.entities.RatData;
 import services.plasma.minecraftRats.listeners.BlockBreakListener;
+import services.plasma.minecraftRats.listeners.BlockChangeListener;
+import services.plasma.minecraftRats.listeners.ChunkListener;
+import services.plasma.minecraftRats.listeners.EntityTrackingListener;
 import services.plasma.minecraftRats.listeners.RatListener;
+import services.plasma.minecraftRats.managers.NestManager;
 import services.plasma.minecraftRats.managers.RatManager;
+import services.plasma.minecraftRats.metrics.RatMetrics;
+import services.plasma.minecraftRats.scheduler.BukkitRatScheduler;
+import services.plasma.minecraftRats.scheduler.FoliaRatScheduler;
+import services.plasma.minecraftRats.scheduler.RatScheduler;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public final class MinecraftRats extends JavaPlugin {
 
     private static MinecraftRats instance;
+    private RatScheduler scheduler;
     private ConfigManager configManager;
+    private RatMetrics metrics;
+    private NestManager nestManager;
     private RatManager ratManager;
 
     @Override
     public void onEnable() {
         instance = this;
 
+        scheduler = createScheduler();
+
         configManager = new ConfigManager(this);
         configManager.loadConfig();
 
+        RatData.init(this);
+
+        metrics = new RatMetrics(this);
+        metrics.start();
+
+        nestManager = new NestManager(this);
+        nestManager.start();
+
         ratManager = new RatManager(this);
 
         getCommand("rats").setExecutor(new RatsCommand(this));
 
         Bukkit.getPluginManager().registerEvents(new RatListener(this), this);
         Bukkit.getPluginManager().registerEvents(new BlockBreakListener(this), this);
+        Bukkit.getPluginManager().registerEvents(new ChunkListener(this), this);
+        Bukkit.getPluginManager().registerEvents(new BlockChangeListener(this), this);
+        Bukkit.getPluginManager().registerEvents(new EntityTrackingListener(this), this);
 
-        if (configManager.isNaturalSpawningEnabled()) {
-            ratManager.startSpawningTask();
-        }
+        ratManager.reseedSpatialIndex();
+        ratManager.loadExistingRats();
+
+        ratManager.startSpawningTask();
+
+        ratManager.getBehaviorScheduler().start();
 
         getLogger().info("MinecraftRats plugin has been enabled!");
         getLogger().info("Adding rats to your Minecraft world...");
@@ -38,15 +71,37 @@ public final class MinecraftRats extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        // Stop spawning task
+        // Stop tasks; rats are persistent and are picked up again on the next start
         if (ratManager != null) {
-            ratManager.stopSpawningTask();
-            ratManager.removeAllRats();
+            ratManager.shutdown();
+            ratManager.getBehaviorScheduler().stop();
+            ratManager.getRegistry().clear();
+        }
+
+        if (nestManager != null) {
+            nestManager.stop();
+        }
+
+        if (metrics != null) {
+            metrics.stop();
         }
 
         getLogger().info("MinecraftRats plugin has been disabled!");
     }
 
+    private RatScheduler createScheduler() {
+        if (FoliaRatScheduler.isSupported()) {
+            try {
+                RatScheduler regionScheduler = new FoliaRatScheduler(this);
+                getLogger().info("Region-threaded server detected, using the region schedulers");
+                return regionScheduler;
+            } catch (ReflectiveOperationException e) {
+                getLogger().warning("Could not hook into the region schedulers: " + e.getMessage());
+            }
+        }
+        return new BukkitRatScheduler(this);
+    }
+
     /**
      * Get the plugin instance
      * @return MinecraftRats instance
@@ -55,6 +110,14 @@ public final class MinecraftRats extends JavaPlugin {
         return instance;
     }
 
+    /**
+     * Get the scheduler for global, region, entity and async tasks
+     * @return RatScheduler instance
+     */
+    public RatScheduler getScheduler() {
+        return scheduler;
+    }
+
     /**
      * Get the configuration manager
      * @return ConfigManager instance
@@ -63,6 +126,22 @@ public final class MinecraftRats extends JavaPlugin {
         return configManager;
     }
 
+    /**
+     * Get the metrics registry
+     * @return RatMetrics instance
+     */
+    public RatMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the nest manager
+     * @return NestManager instance
+     */
+    public NestManager getNestManager() {
+        return nestManager;
+    }
+
     /**
      * Get the rat manager
      * @return RatManager instance
@@ -72,19 +151,38 @@ public final class MinecraftRats extends JavaPlugin {
     }
 
     /**
-     * Reload the plugin configuration
+     * Reload the plugin configuration. Parsing happens off the main thread and
+     * running tasks read the new settings on their next run, so nothing is
+     * restarted.
+     *
+     * @return A future that completes on the main thread with every problem found in the config
      */
-    public void reload() {
-        configManager.reloadConfig();
-
-        if (ratManager != null) {
-            ratManager.stopSpawningTask();
+    public CompletableFuture<List<String>> reload() {
+        RatSettings previous = configManager.getSettings();
+        return configManager.reloadConfigAsync().thenApply(problems -> {
+            if (ratManager != null && tracksDifferentEntities(previous, configManager.getSettings())) {
+                ratManager.reseedSpatialIndex();
+            }
 
-            if (configManager.isNaturalSpawningEnabled()) {
-                ratManager.startSpawningTask();
+            if (problems.isEmpty()) {
+                getLogger().info("MinecraftRats configuration has been reloaded!");
+            } else {
+                getLogger().info("MinecraftRats configuration has been reloaded with " + problems.size() + " problem(s)");
             }
-        }
+            return problems;
+        });
+    }
 
-        getLogger().info("MinecraftRats configuration has been reloaded!");
+    /**
+     * Check if the spatial index would track other entities under new settings
+     *
+     * @param previous The settings before the reload
+     * @param current The settings after the reload
+     * @return True if the scared-of list or item stealing changed
+     */
+    private static boolean tracksDifferentEntities(RatSettings previous, RatSettings current) {
+        return previous == null
+                || previous.isRatStealItems() != current.isRatStealItems()
+                || !new HashSet<>(previous.getRatScaredOf()).equals(new HashSet<>(current.getRatScaredOf()));
     }
-}
\ No newline at end of file
+}
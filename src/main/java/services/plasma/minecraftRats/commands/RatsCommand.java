@@ -1,22 +1,37 @@
 package services.plasma.minecraftRats.commands;
 
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
+import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import services.plasma.minecraftRats.MinecraftRats;
 import services.plasma.minecraftRats.config.ConfigManager;
 import services.plasma.minecraftRats.managers.RatManager;
+import services.plasma.minecraftRats.metrics.CounterMetric;
+import services.plasma.minecraftRats.metrics.LatencyHistogram;
+import services.plasma.minecraftRats.metrics.LatencyMetric;
+import services.plasma.minecraftRats.metrics.RatMetrics;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 public class RatsCommand implements CommandExecutor, TabCompleter {
 
+    /**
+     * Largest radius /rats kill radius accepts, in blocks
+     */
+    private static final double MAX_KILL_RADIUS = 512;
+
     private final MinecraftRats plugin;
     private final ConfigManager configManager;
     private final RatManager ratManager;
@@ -40,9 +55,11 @@ public class RatsCommand implements CommandExecutor, TabCompleter {
             case "spawn":
                 return handleSpawnCommand(sender, args);
             case "kill":
-                return handleKillCommand(sender);
+                return handleKillCommand(sender, args);
             case "reload":
                 return handleReloadCommand(sender);
+            case "stats":
+                return handleStatsCommand(sender);
             default:
                 sendHelpMessage(sender);
                 return true;
@@ -82,34 +99,127 @@ public class RatsCommand implements CommandExecutor, TabCompleter {
             }
         }
 
-        int spawnedAmount = ratManager.spawnRats(player.getLocation(), amount);
-
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&',
-                configManager.getPrefix() + configManager.getSpawnMessage().replace("%amount%", String.valueOf(spawnedAmount))));
+        // Large amounts are spread over several ticks, so reply once the queue is done
+        ratManager.spawnRats(player.getLocation(), amount).thenAccept(rats -> {
+            if (player.isOnline()) {
+                player.sendMessage(ChatColor.translateAlternateColorCodes('&',
+                        configManager.getPrefix() + configManager.getSpawnMessage().replace("%amount%", String.valueOf(rats.size()))));
+            }
+        });
 
         return true;
     }
 
     /**
-     * Handle the kill subcommand
+     * Handle the kill subcommand: /rats kill [world [name]|radius <blocks>|chunk] [--keep-nests].
+     * Targets are resolved from the rat registry, then removed over several ticks.
      *
      * @param sender The command sender
+     * @param args The command arguments
      * @return True if the command was handled, false otherwise
      */
-    private boolean handleKillCommand(CommandSender sender) {
+    private boolean handleKillCommand(CommandSender sender, String[] args) {
         if (!sender.hasPermission("minecraftrats.kill")) {
             sender.sendMessage(ChatColor.translateAlternateColorCodes('&', configManager.getPrefix() + configManager.getNoPermissionMessage()));
             return true;
         }
 
-        int killedAmount = ratManager.removeAllRats();
+        List<String> options = new ArrayList<>(Arrays.asList(args).subList(1, args.length));
+        boolean keepNests = options.remove("--keep-nests");
+        String scope = options.isEmpty() ? "all" : options.get(0).toLowerCase();
+        Player player = sender instanceof Player ? (Player) sender : null;
+
+        List<LivingEntity> targets;
+        Runnable removeNests;
+
+        switch (scope) {
+            case "all": {
+                targets = ratManager.getAllRats();
+                removeNests = ratManager::removeAllNests;
+                break;
+            }
+            case "world": {
+                World world = options.size() >= 2 ? Bukkit.getWorld(options.get(1)) : player != null ? player.getWorld() : null;
+                if (world == null) {
+                    sender.sendMessage(ChatColor.RED + "Unknown world. Usage: /rats kill world [name] [--keep-nests]");
+                    return true;
+                }
+
+                targets = ratManager.getRegistry().snapshot(world);
+                removeNests = () -> ratManager.removeNests(world, nest -> true);
+                break;
+            }
+            case "radius": {
+                if (player == null) {
+                    sender.sendMessage(ChatColor.RED + "This command can only be executed by a player.");
+                    return true;
+                }
+
+                double radius;
+                try {
+                    radius = Double.parseDouble(options.size() >= 2 ? options.get(1) : "");
+                } catch (NumberFormatException e) {
+                    sender.sendMessage(ChatColor.RED + "Invalid radius. Usage: /rats kill radius <blocks> [--keep-nests]");
+                    return true;
+                }
 
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&',
-                configManager.getPrefix() + configManager.getKillMessage().replace("%amount%", String.valueOf(killedAmount))));
+                if (Double.isNaN(radius) || Double.isInfinite(radius) || radius <= 0 || radius > MAX_KILL_RADIUS) {
+                    sender.sendMessage(ChatColor.RED + "The radius must be between 0 and " + (int) MAX_KILL_RADIUS + " blocks.");
+                    return true;
+                }
+
+                Location center = player.getLocation();
+                World world = center.getWorld();
+                targets = ratManager.getRegistry().snapshotNear(world, center.getX(), center.getZ(), radius);
+                removeNests = () -> ratManager.removeNests(world, nest -> {
+                    double dx = nest.getX() + 0.5 - center.getX();
+                    double dz = nest.getZ() + 0.5 - center.getZ();
+                    return dx * dx + dz * dz <= radius * radius;
+                });
+                break;
+            }
+            case "chunk": {
+                if (player == null) {
+                    sender.sendMessage(ChatColor.RED + "This command can only be executed by a player.");
+                    return true;
+                }
+
+                World world = player.getWorld();
+                int chunkX = player.getLocation().getBlockX() >> 4;
+                int chunkZ = player.getLocation().getBlockZ() >> 4;
+                targets = ratManager.getRegistry().snapshotChunk(world, chunkX, chunkZ);
+                removeNests = () -> ratManager.removeNests(world,
+                        nest -> nest.getX() >> 4 == chunkX && nest.getZ() >> 4 == chunkZ);
+                break;
+            }
+            default:
+                sender.sendMessage(ChatColor.RED + "Usage: /rats kill [world [name]|radius <blocks>|chunk] [--keep-nests]");
+                return true;
+        }
+
+        if (!keepNests) {
+            removeNests.run();
+        }
+
+        final int total = targets.size();
+        ratManager.removeRats(targets, removed -> {
+            if (isReachable(sender)) {
+                sender.sendMessage(ChatColor.GRAY + "Removing rats... " + removed + "/" + total);
+            }
+        }).thenAccept(removed -> {
+            if (isReachable(sender)) {
+                sender.sendMessage(ChatColor.translateAlternateColorCodes('&',
+                        configManager.getPrefix() + configManager.getKillMessage().replace("%amount%", String.valueOf(removed))));
+            }
+        });
 
         return true;
     }
 
+    private static boolean isReachable(CommandSender sender) {
+        return !(sender instanceof Player) || ((Player) sender).isOnline();
+    }
+
     /**
      * Handle the reload subcommand
      *
@@ -122,13 +232,69 @@ public class RatsCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        plugin.reload();
+        plugin.reload().thenAccept(problems -> {
+            if (!isReachable(sender)) {
+                return;
+            }
+
+            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', configManager.getPrefix() + configManager.getReloadMessage()));
+            if (!problems.isEmpty()) {
+                sender.sendMessage(ChatColor.YELLOW + "Found " + problems.size() + " problem(s) in config.yml:");
+                for (String problem : problems) {
+                    sender.sendMessage(ChatColor.GRAY + " - " + problem);
+                }
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * Handle the stats subcommand
+     *
+     * @param sender The command sender
+     * @return True if the command was handled, false otherwise
+     */
+    private boolean handleStatsCommand(CommandSender sender) {
+        if (!sender.hasPermission("minecraftrats.stats")) {
+            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', configManager.getPrefix() + configManager.getNoPermissionMessage()));
+            return true;
+        }
+
+        RatMetrics metrics = plugin.getMetrics();
+
+        sender.sendMessage(ChatColor.YELLOW + "=== MinecraftRats Stats ===");
+        sender.sendMessage(ChatColor.GOLD + "Rats: " + ChatColor.WHITE + ratManager.getRatCount()
+                + ChatColor.GOLD + "  Hibernating: " + ChatColor.WHITE + ratManager.getRegistry().getHibernatingCount()
+                + ChatColor.GOLD + "  Nests: " + ChatColor.WHITE + plugin.getNestManager().size()
+                + ChatColor.GOLD + "  Virtual: " + ChatColor.WHITE + plugin.getNestManager().getVirtualPopulation()
+                + ChatColor.GOLD + "  Flow fields: " + ChatColor.WHITE + ratManager.getFlowFields().size()
+                + ChatColor.GOLD + "  Queued spawns: " + ChatColor.WHITE + ratManager.getSpawnQueue().getQueuedCount()
+                + ChatColor.GOLD + "  Behavior lag: " + ChatColor.WHITE + ratManager.getBehaviorScheduler().getTicksBehind() + " ticks");
+
+        for (CounterMetric counter : metrics.getCounters()) {
+            sender.sendMessage(ChatColor.GOLD + counter.getName() + ChatColor.WHITE + " 1m/5m/15m: "
+                    + counter.window(1) + " / " + counter.window(5) + " / " + counter.window(15));
+        }
 
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', configManager.getPrefix() + configManager.getReloadMessage()));
+        sender.sendMessage(ChatColor.GRAY + "Latency in microseconds: count, p50, p99 and max over 1m; p99 over 5m and 15m (each plus the current minute)");
+        for (LatencyMetric metric : metrics.getLatencies()) {
+            LatencyHistogram minute = metric.window(1);
+            sender.sendMessage(ChatColor.GOLD + metric.getName() + ChatColor.WHITE + " " + minute.getCount()
+                    + "  " + micros(minute.getValueAt(0.5))
+                    + "  " + micros(minute.getValueAt(0.99))
+                    + "  " + micros(minute.getMax())
+                    + ChatColor.GRAY + "  | " + micros(metric.window(5).getValueAt(0.99))
+                    + " / " + micros(metric.window(15).getValueAt(0.99)));
+        }
 
         return true;
     }
 
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+
     /**
      * Send the help message to the sender
      *
@@ -137,8 +303,9 @@ public class RatsCommand implements CommandExecutor, TabCompleter {
     private void sendHelpMessage(CommandSender sender) {
         sender.sendMessage(ChatColor.YELLOW + "=== MinecraftRats Commands ===");
         sender.sendMessage(ChatColor.GOLD + "/rats spawn [amount]" + ChatColor.WHITE + " - Spawn rats at your location");
-        sender.sendMessage(ChatColor.GOLD + "/rats kill" + ChatColor.WHITE + " - Kill all rats");
+        sender.sendMessage(ChatColor.GOLD + "/rats kill [world [name]|radius <blocks>|chunk] [--keep-nests]" + ChatColor.WHITE + " - Kill rats");
         sender.sendMessage(ChatColor.GOLD + "/rats reload" + ChatColor.WHITE + " - Reload the plugin configuration");
+        sender.sendMessage(ChatColor.GOLD + "/rats stats" + ChatColor.WHITE + " - Show rat performance statistics");
     }
 
     @Override
@@ -146,10 +313,21 @@ public class RatsCommand implements CommandExecutor, TabCompleter {
         List<String> completions = new ArrayList<>();
 
         if (args.length == 1) {
-            List<String> subCommands = Arrays.asList("spawn", "kill", "reload");
+            List<String> subCommands = Arrays.asList("spawn", "kill", "reload", "stats");
             return filterCompletions(subCommands, args[0]);
         } else if (args.length == 2 && args[0].equalsIgnoreCase("spawn")) {
             return Arrays.asList("1", "5", "10", "25", "50");
+        } else if (args.length >= 2 && args[0].equalsIgnoreCase("kill")) {
+            if (args.length == 2) {
+                return filterCompletions(Arrays.asList("world", "radius", "chunk", "--keep-nests"), args[1]);
+            }
+            if (args.length == 3 && args[1].equalsIgnoreCase("world")) {
+                return filterCompletions(Bukkit.getWorlds().stream().map(World::getName).collect(Collectors.toList()), args[2]);
+            }
+            if (args.length == 3 && args[1].equalsIgnoreCase("radius")) {
+                return Arrays.asList("16", "32", "64", "128");
+            }
+            return filterCompletions(Collections.singletonList("--keep-nests"), args[args.length - 1]);
         }
 
         return completions;
@@ -0,0 +1,101 @@
+package services.plasma.minecraftRats.config;
+
+import java.util.Random;
+
+/**
+ * Vose alias table for O(1) weighted picks over a fixed set of outcomes.
+ * Outcome indexes follow the order of the weights passed in.
+ */
+public final class AliasTable {
+
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * Build an alias table
+     *
+     * @param weights Non-negative weights, at least one of them positive
+     */
+    public AliasTable(double[] weights) {
+        int size = weights.length;
+        if (size == 0) {
+            throw new IllegalArgumentException("weights must not be empty");
+        }
+
+        double total = 0.0;
+        for (double weight : weights) {
+            if (weight < 0 || Double.isNaN(weight)) {
+                throw new IllegalArgumentException("weights must be non-negative");
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("at least one weight must be positive");
+        }
+
+        probability = new double[size];
+        alias = new int[size];
+
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            probability[less] = scaled[less];
+            alias[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Whatever is left over is 1.0 up to rounding error
+        while (largeCount > 0) {
+            int index = large[--largeCount];
+            probability[index] = 1.0;
+            alias[index] = index;
+        }
+        while (smallCount > 0) {
+            int index = small[--smallCount];
+            probability[index] = 1.0;
+            alias[index] = index;
+        }
+    }
+
+    /**
+     * Pick an outcome index
+     *
+     * @param random The random source
+     * @return An index into the original weights
+     */
+    public int sample(Random random) {
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+
+    /**
+     * Get the number of outcomes
+     *
+     * @return The number of outcomes
+     */
+    public int size() {
+        return probability.length;
+    }
+}
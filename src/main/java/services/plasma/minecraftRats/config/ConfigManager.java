@@ -3,14 +3,18 @@ package services.plasma.minecraftRats.config;
 import com.cryptomorin.xseries.XMaterial;
 import org.bukkit.Sound;
 import org.bukkit.block.Biome;
-import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.EntityType;
 import services.plasma.minecraftRats.MinecraftRats;
 
 import java.io.File;
-import java.util.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class ConfigManager {
 
@@ -18,50 +22,7 @@ public class ConfigManager {
     private FileConfiguration config;
     private File configFile;
 
-    private boolean enabled;
-    private boolean debug;
-
-    private double ratHealth;
-    private double ratSpeed;
-    private double ratDamage;
-    private boolean ratAttackPlayers;
-    private boolean ratAttackMobs;
-    private List<EntityType> ratScaredOf;
-    private boolean ratStealItems;
-    private int ratMaxItems;
-    private Sound ratSound;
-    private int ratSoundInterval;
-
-    private boolean naturalSpawning;
-    private int maxRats;
-    private int minLightLevel;
-    private int maxLightLevel;
-    private double spawnChance;
-    private List<String> enabledWorlds;
-    private List<Biome> preferredBiomes;
-    private List<Biome> disabledBiomes;
-
-    private boolean blockSpawningEnabled;
-    private double blockSpawnChance;
-    private List<XMaterial> spawnBlocks;
-
-    private boolean dropsEnabled;
-    private Map<XMaterial, RatDrop> drops;
-
-    private boolean nestsEnabled;
-    private List<XMaterial> nestMaterials;
-    private int maxNests;
-    private int wanderDistance;
-    private int returnInterval;
-
-    private boolean customColorsEnabled;
-    private Map<String, Double> colorChances;
-
-    private String prefix;
-    private String reloadMessage;
-    private String spawnMessage;
-    private String killMessage;
-    private String noPermissionMessage;
+    private volatile RatSettings settings;
 
     public ConfigManager(MinecraftRats plugin) {
         this.plugin = plugin;
@@ -81,7 +42,7 @@ public class ConfigManager {
     }
 
     /**
-     * Reload the configuration
+     * Reload the configuration on the calling thread
      */
     public void reloadConfig() {
         if (configFile == null) {
@@ -93,292 +54,213 @@ public class ConfigManager {
     }
 
     /**
-     * Load all settings from the config
+     * Reload the configuration without stalling the server. The file is read,
+     * parsed and validated on an async thread, and the new settings are
+     * published on the main thread in a single swap. A file that can't be
+     * read or parsed leaves the current settings in place.
+     *
+     * @return A future that completes on the main thread with every problem found, empty if there were none
      */
-    private void loadSettings() {
-        enabled = config.getBoolean("general.enabled", true);
-        debug = config.getBoolean("general.debug", false);
-
-        ratHealth = config.getDouble("rat.health", 10.0);
-        ratSpeed = config.getDouble("rat.speed", 0.25);
-        ratDamage = config.getDouble("rat.damage", 2.0);
-        ratAttackPlayers = config.getBoolean("rat.attack-players", true);
-        ratAttackMobs = config.getBoolean("rat.attack-mobs", false);
-
-        ratScaredOf = new ArrayList<>();
-        List<String> scaredOfList = config.getStringList("rat.scared-of");
-        for (String entityName : scaredOfList) {
-            try {
-                EntityType entityType = EntityType.valueOf(entityName.toUpperCase());
-                ratScaredOf.add(entityType);
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().warning("Invalid entity type in scared-of list: " + entityName);
-            }
-        }
-
-        ratStealItems = config.getBoolean("rat.steal-items", true);
-        ratMaxItems = config.getInt("rat.max-items", 3);
-
-        String soundName = config.getString("rat.sound", "ENTITY_BAT_AMBIENT");
-        try {
-            ratSound = Sound.valueOf(soundName.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            plugin.getLogger().warning("Invalid sound: " + soundName + ". Using default sound.");
-            ratSound = Sound.ENTITY_BAT_AMBIENT;
+    public CompletableFuture<List<String>> reloadConfigAsync() {
+        if (!configFile.exists()) {
+            plugin.saveDefaultConfig();
         }
 
-        ratSoundInterval = config.getInt("rat.sound-interval", 100);
-
-        naturalSpawning = config.getBoolean("spawning.natural-spawning", true);
-        maxRats = config.getInt("spawning.max-rats", 50);
-        minLightLevel = config.getInt("spawning.min-light-level", 0);
-        maxLightLevel = config.getInt("spawning.max-light-level", 7);
-        spawnChance = config.getDouble("spawning.chance", 0.05);
-        enabledWorlds = config.getStringList("spawning.enabled-worlds");
+        CompletableFuture<List<String>> result = new CompletableFuture<>();
+        plugin.getScheduler().runAsync(() -> {
+            List<String> problems = new ArrayList<>();
+            YamlConfiguration loaded = new YamlConfiguration();
+            RatSettings compiled = null;
 
-        preferredBiomes = new ArrayList<>();
-        List<String> preferredBiomeList = config.getStringList("spawning.preferred-biomes");
-        for (String biomeName : preferredBiomeList) {
             try {
-                Biome biome = Biome.valueOf(biomeName.toUpperCase());
-                preferredBiomes.add(biome);
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().warning("Invalid biome in preferred-biomes list: " + biomeName);
+                loaded.load(configFile);
+                compiled = RatSettings.compile(loaded, problems);
+            } catch (IOException | InvalidConfigurationException e) {
+                problems.add("Could not read config.yml, keeping the current settings: " + e.getMessage());
+            } catch (RuntimeException e) {
+                problems.add("Could not compile config.yml, keeping the current settings: " + e);
             }
-        }
-
-        disabledBiomes = new ArrayList<>();
-        List<String> disabledBiomeList = config.getStringList("spawning.disabled-biomes");
-        for (String biomeName : disabledBiomeList) {
-            try {
-                Biome biome = Biome.valueOf(biomeName.toUpperCase());
-                disabledBiomes.add(biome);
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().warning("Invalid biome in disabled-biomes list: " + biomeName);
-            }
-        }
-
-        blockSpawningEnabled = config.getBoolean("block-spawning.enabled", true);
-        blockSpawnChance = config.getDouble("block-spawning.chance", 0.05);
-
-        spawnBlocks = new ArrayList<>();
-        List<String> blocksList = config.getStringList("block-spawning.blocks");
-        for (String blockName : blocksList) {
-            Optional<XMaterial> material = XMaterial.matchXMaterial(blockName.toUpperCase());
-            if (material.isPresent()) {
-                spawnBlocks.add(material.get());
-            } else {
-                plugin.getLogger().warning("Invalid material in spawn blocks list: " + blockName);
-            }
-        }
 
-        dropsEnabled = config.getBoolean("drops.enabled", true);
-        drops = new HashMap<>();
-
-        List<String> dropsList = config.getStringList("drops.items");
-        for (String dropString : dropsList) {
-            String[] parts = dropString.split(":");
-            if (parts.length == 3) {
-                try {
-                    String materialName = parts[0].toUpperCase();
-                    Optional<XMaterial> material = XMaterial.matchXMaterial(materialName);
-                    if (material.isPresent()) {
-                        int amount = Integer.parseInt(parts[1]);
-                        double chance = Double.parseDouble(parts[2]);
-                        drops.put(material.get(), new RatDrop(material.get(), amount, chance));
-                    } else {
-                        plugin.getLogger().warning("Invalid material in drops list: " + materialName);
-                    }
-                } catch (NumberFormatException e) {
-                    plugin.getLogger().warning("Invalid drop format: " + dropString);
+            RatSettings next = compiled;
+            plugin.getScheduler().run(() -> {
+                if (next != null) {
+                    config = loaded;
+                    settings = next;
                 }
-            } else {
-                plugin.getLogger().warning("Invalid drop format: " + dropString);
-            }
-        }
-
-        nestsEnabled = config.getBoolean("nests.enabled", true);
-        nestMaterials = new ArrayList<>();
-
-        List<String> nestMaterialsList = config.getStringList("nests.materials");
-        for (String materialName : nestMaterialsList) {
-            Optional<XMaterial> material = XMaterial.matchXMaterial(materialName.toUpperCase());
-            if (material.isPresent()) {
-                nestMaterials.add(material.get());
-            } else {
-                plugin.getLogger().warning("Invalid material in nest materials list: " + materialName);
-            }
-        }
-
-        maxNests = config.getInt("nests.max-nests", 15);
-        wanderDistance = config.getInt("nests.wander-distance", 16);
-        returnInterval = config.getInt("nests.return-interval", 12000);
+                result.complete(problems);
+            });
+        });
+        return result;
+    }
 
-        customColorsEnabled = config.getBoolean("colors.enabled", true);
-        colorChances = new HashMap<>();
+    /**
+     * Compile all settings from the config and publish them in one step
+     */
+    private void loadSettings() {
+        List<String> problems = new ArrayList<>();
+        settings = RatSettings.compile(config, problems);
 
-        ConfigurationSection colorsSection = config.getConfigurationSection("colors.list");
-        if (colorsSection != null) {
-            for (String color : colorsSection.getKeys(false)) {
-                double chance = colorsSection.getDouble(color, 0.0);
-                colorChances.put(color.toUpperCase(), chance);
-            }
+        for (String problem : problems) {
+            plugin.getLogger().warning(problem);
         }
-
-        prefix = config.getString("messages.prefix", "&7[&eMinecraftRats&7] ");
-        reloadMessage = config.getString("messages.reload", "&aConfiguration reloaded successfully!");
-        spawnMessage = config.getString("messages.spawn", "&aSpawned %amount% rats!");
-        killMessage = config.getString("messages.kill", "&cKilled %amount% rats!");
-        noPermissionMessage = config.getString("messages.no-permission", "&cYou don't have permission to use this command!");
     }
 
+    /**
+     * Get the current settings snapshot. Callers on hot paths should read
+     * this once and use the returned snapshot for the rest of the operation.
+     *
+     * @return The current RatSettings snapshot
+     */
+    public RatSettings getSettings() {
+        return settings;
+    }
 
     public boolean isEnabled() {
-        return enabled;
+        return settings.isEnabled();
     }
 
     public boolean isDebug() {
-        return debug;
+        return settings.isDebug();
     }
 
     public double getRatHealth() {
-        return ratHealth;
+        return settings.getRatHealth();
     }
 
     public double getRatSpeed() {
-        return ratSpeed;
+        return settings.getRatSpeed();
     }
 
     public double getRatDamage() {
-        return ratDamage;
+        return settings.getRatDamage();
     }
 
     public boolean isRatAttackPlayers() {
-        return ratAttackPlayers;
+        return settings.isRatAttackPlayers();
     }
 
     public boolean isRatAttackMobs() {
-        return ratAttackMobs;
+        return settings.isRatAttackMobs();
     }
 
     public List<EntityType> getRatScaredOf() {
-        return ratScaredOf;
+        return settings.getRatScaredOf();
     }
 
     public boolean isRatStealItems() {
-        return ratStealItems;
+        return settings.isRatStealItems();
     }
 
     public int getRatMaxItems() {
-        return ratMaxItems;
+        return settings.getRatMaxItems();
     }
 
     public Sound getRatSound() {
-        return ratSound;
+        return settings.getRatSound();
     }
 
     public int getRatSoundInterval() {
-        return ratSoundInterval;
+        return settings.getRatSoundInterval();
     }
 
     public boolean isNaturalSpawningEnabled() {
-        return naturalSpawning;
+        return settings.isNaturalSpawningEnabled();
     }
 
     public int getMaxRats() {
-        return maxRats;
+        return settings.getMaxRats();
     }
 
     public int getMinLightLevel() {
-        return minLightLevel;
+        return settings.getMinLightLevel();
     }
 
     public int getMaxLightLevel() {
-        return maxLightLevel;
+        return settings.getMaxLightLevel();
     }
 
     public double getSpawnChance() {
-        return spawnChance;
+        return settings.getSpawnChance();
     }
 
     public List<String> getEnabledWorlds() {
-        return enabledWorlds;
+        return settings.getEnabledWorlds();
     }
 
     public List<Biome> getPreferredBiomes() {
-        return preferredBiomes;
+        return settings.getPreferredBiomes();
     }
 
     public List<Biome> getDisabledBiomes() {
-        return disabledBiomes;
+        return settings.getDisabledBiomes();
     }
 
     public boolean isBlockSpawningEnabled() {
-        return blockSpawningEnabled;
+        return settings.isBlockSpawningEnabled();
     }
 
     public double getBlockSpawnChance() {
-        return blockSpawnChance;
+        return settings.getBlockSpawnChance();
     }
 
     public List<XMaterial> getSpawnBlocks() {
-        return spawnBlocks;
+        return settings.getSpawnBlocks();
     }
 
     public boolean isDropsEnabled() {
-        return dropsEnabled;
+        return settings.isDropsEnabled();
     }
 
     public Map<XMaterial, RatDrop> getDrops() {
-        return drops;
+        return settings.getDrops();
     }
 
     public boolean isNestsEnabled() {
-        return nestsEnabled;
+        return settings.isNestsEnabled();
     }
 
     public List<XMaterial> getNestMaterials() {
-        return nestMaterials;
+        return settings.getNestMaterials();
     }
 
     public int getMaxNests() {
-        return maxNests;
+        return settings.getMaxNests();
     }
 
     public int getWanderDistance() {
-        return wanderDistance;
+        return settings.getWanderDistance();
     }
 
     public int getReturnInterval() {
-        return returnInterval;
+        return settings.getReturnInterval();
     }
 
     public boolean isCustomColorsEnabled() {
-        return customColorsEnabled;
+        return settings.isCustomColorsEnabled();
     }
 
     public Map<String, Double> getColorChances() {
-        return colorChances;
+        return settings.getColorChances();
     }
 
     public String getPrefix() {
-        return prefix;
+        return settings.getPrefix();
     }
 
     public String getReloadMessage() {
-        return reloadMessage;
+        return settings.getReloadMessage();
     }
 
     public String getSpawnMessage() {
-        return spawnMessage;
+        return settings.getSpawnMessage();
     }
 
     public String getKillMessage() {
-        return killMessage;
+        return settings.getKillMessage();
     }
 
     public String getNoPermissionMessage() {
-        return noPermissionMessage;
+        return settings.getNoPermissionMessage();
     }
 
     /**
@@ -0,0 +1,658 @@
+package services.plasma.minecraftRats.config;
+
+import com.cryptomorin.xseries.XMaterial;
+import org.bukkit.Material;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.EntityType;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.*;
+
+/**
+ * Immutable snapshot of the plugin configuration, compiled into lookup
+ * tables once per load so hot paths never parse or scan lists.
+ */
+public final class RatSettings {
+
+    private final boolean enabled;
+    private final boolean debug;
+
+    private final double ratHealth;
+    private final double ratSpeed;
+    private final double ratDamage;
+    private final boolean ratAttackPlayers;
+    private final boolean ratAttackMobs;
+    private final List<EntityType> ratScaredOf;
+    private final Set<EntityType> ratScaredOfTypes;
+    private final boolean ratStealItems;
+    private final int ratMaxItems;
+    private final Sound ratSound;
+    private final int ratSoundInterval;
+
+    private final boolean naturalSpawning;
+    private final int spawnInterval;
+    private final int maxRats;
+    private final int maxRatsPerWorld;
+    private final int maxRatsPerChunk;
+    private final int maxRatsPerRegion;
+    private final int maxRatsPerPlayer;
+    private final int minLightLevel;
+    private final int maxLightLevel;
+    private final double spawnChance;
+    private final List<String> enabledWorlds;
+    private final Set<String> enabledWorldNames;
+    private final List<Biome> preferredBiomes;
+    private final Set<Biome> preferredBiomeSet;
+    private final double preferredBiomeWeight;
+    private final List<Biome> disabledBiomes;
+    private final Set<Biome> disabledBiomeSet;
+
+    private final boolean blockSpawningEnabled;
+    private final double blockSpawnChance;
+    private final List<XMaterial> spawnBlocks;
+    private final Set<Material> spawnBlockMaterials;
+
+    private final boolean dropsEnabled;
+    private final Map<XMaterial, ConfigManager.RatDrop> drops;
+    private final ConfigManager.RatDrop[] dropTable;
+    private final ItemStack[] dropTemplates;
+
+    private final boolean nestsEnabled;
+    private final List<XMaterial> nestMaterials;
+    private final Set<Material> nestMaterialSet;
+    private final int maxNests;
+    private final int nestCapacity;
+    private final double nestGrowthRate;
+    private final int nestMaterializeCap;
+    private final double nestActivationRange;
+    private final int nestSpawnsPerCycle;
+    private final int wanderDistance;
+    private final int returnInterval;
+
+    private final boolean customColorsEnabled;
+    private final Map<String, Double> colorChances;
+    private final RatColor[] colors;
+    private final AliasTable colorSampler;
+
+    private final int behaviorInterval;
+    private final long behaviorBudgetNanos;
+    private final int spawnsPerTick;
+    private final int removalsPerTick;
+    private final int soundsPerChunk;
+    private final double hibernationDistance;
+    private final boolean hibernationSilent;
+    private final int playerGridInterval;
+    private final double nameplateDistance;
+
+    private final boolean prometheusFileEnabled;
+    private final int prometheusInterval;
+
+    private final String prefix;
+    private final String reloadMessage;
+    private final String spawnMessage;
+    private final String killMessage;
+    private final String noPermissionMessage;
+
+    private RatSettings(FileConfiguration config, List<String> problems) {
+        enabled = config.getBoolean("general.enabled", true);
+        debug = config.getBoolean("general.debug", false);
+
+        ratHealth = config.getDouble("rat.health", 10.0);
+        ratSpeed = config.getDouble("rat.speed", 0.25);
+        ratDamage = config.getDouble("rat.damage", 2.0);
+        ratAttackPlayers = config.getBoolean("rat.attack-players", true);
+        ratAttackMobs = config.getBoolean("rat.attack-mobs", false);
+
+        List<EntityType> scaredOf = new ArrayList<>();
+        for (String entityName : config.getStringList("rat.scared-of")) {
+            try {
+                scaredOf.add(EntityType.valueOf(entityName.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                problems.add("Invalid entity type in scared-of list: " + entityName);
+            }
+        }
+        ratScaredOf = Collections.unmodifiableList(scaredOf);
+        ratScaredOfTypes = scaredOf.isEmpty() ? EnumSet.noneOf(EntityType.class) : EnumSet.copyOf(scaredOf);
+
+        ratStealItems = config.getBoolean("rat.steal-items", true);
+        ratMaxItems = config.getInt("rat.max-items", 3);
+
+        String soundName = config.getString("rat.sound", "ENTITY_BAT_AMBIENT");
+        Sound sound;
+        try {
+            sound = Sound.valueOf(soundName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            problems.add("Invalid sound: " + soundName + ". Using default sound.");
+            sound = Sound.ENTITY_BAT_AMBIENT;
+        }
+        ratSound = sound;
+
+        ratSoundInterval = Math.max(1, config.getInt("rat.sound-interval", 100));
+
+        naturalSpawning = config.getBoolean("spawning.natural-spawning", true);
+        spawnInterval = Math.max(20, config.getInt("spawning.interval", 600));
+        maxRats = config.getInt("spawning.max-rats", 50);
+        maxRatsPerWorld = parseLimit(config.getInt("spawning.max-rats-per-world", 0));
+        maxRatsPerChunk = parseLimit(config.getInt("spawning.max-rats-per-chunk", 4));
+        maxRatsPerRegion = parseLimit(config.getInt("spawning.max-rats-per-region", 16));
+        maxRatsPerPlayer = parseLimit(config.getInt("spawning.max-rats-per-player", 20));
+        minLightLevel = config.getInt("spawning.min-light-level", 0);
+        maxLightLevel = config.getInt("spawning.max-light-level", 7);
+        spawnChance = config.getDouble("spawning.chance", 0.05);
+        enabledWorlds = Collections.unmodifiableList(new ArrayList<>(config.getStringList("spawning.enabled-worlds")));
+        enabledWorldNames = new HashSet<>(enabledWorlds);
+
+        preferredBiomes = parseBiomes(config.getStringList("spawning.preferred-biomes"), "preferred-biomes", problems);
+        preferredBiomeSet = toEnumSet(preferredBiomes, Biome.class);
+        preferredBiomeWeight = Math.max(0.0, config.getDouble("spawning.preferred-biome-weight", 3.0));
+        disabledBiomes = parseBiomes(config.getStringList("spawning.disabled-biomes"), "disabled-biomes", problems);
+        disabledBiomeSet = toEnumSet(disabledBiomes, Biome.class);
+
+        blockSpawningEnabled = config.getBoolean("block-spawning.enabled", true);
+        blockSpawnChance = config.getDouble("block-spawning.chance", 0.05);
+        spawnBlocks = parseMaterials(config.getStringList("block-spawning.blocks"), "spawn blocks", problems);
+        spawnBlockMaterials = toMaterialSet(spawnBlocks);
+
+        dropsEnabled = config.getBoolean("drops.enabled", true);
+        Map<XMaterial, ConfigManager.RatDrop> dropMap = new LinkedHashMap<>();
+        for (String dropString : config.getStringList("drops.items")) {
+            String[] parts = dropString.split(":");
+            if (parts.length == 3) {
+                try {
+                    String materialName = parts[0].toUpperCase();
+                    Optional<XMaterial> material = XMaterial.matchXMaterial(materialName);
+                    if (material.isPresent()) {
+                        int amount = Integer.parseInt(parts[1]);
+                        double chance = Double.parseDouble(parts[2]);
+                        dropMap.put(material.get(), new ConfigManager.RatDrop(material.get(), amount, chance));
+                    } else {
+                        problems.add("Invalid material in drops list: " + materialName);
+                    }
+                } catch (NumberFormatException e) {
+                    problems.add("Invalid drop format: " + dropString);
+                }
+            } else {
+                problems.add("Invalid drop format: " + dropString);
+            }
+        }
+        drops = Collections.unmodifiableMap(dropMap);
+
+        // Resolve each drop to an item once; deaths only clone the template
+        List<ConfigManager.RatDrop> resolvedDrops = new ArrayList<>();
+        List<ItemStack> templates = new ArrayList<>();
+        for (ConfigManager.RatDrop drop : dropMap.values()) {
+            ItemStack template = drop.getMaterial().parseItem();
+            if (template == null) {
+                problems.add("Drop material is not available on this server: " + drop.getMaterial().name());
+                continue;
+            }
+            template.setAmount(drop.getAmount());
+            resolvedDrops.add(drop);
+            templates.add(template);
+        }
+        dropTable = resolvedDrops.toArray(new ConfigManager.RatDrop[0]);
+        dropTemplates = templates.toArray(new ItemStack[0]);
+
+        nestsEnabled = config.getBoolean("nests.enabled", true);
+        nestMaterials = parseMaterials(config.getStringList("nests.materials"), "nest materials", problems);
+        nestMaterialSet = toMaterialSet(nestMaterials);
+        maxNests = config.getInt("nests.max-nests", 15);
+        nestCapacity = Math.max(1, config.getInt("nests.capacity", 12));
+        nestGrowthRate = Math.max(0.0, config.getDouble("nests.growth-rate", 0.5));
+        nestMaterializeCap = Math.max(0, config.getInt("nests.materialize-cap", 4));
+        nestActivationRange = Math.max(0.0, config.getDouble("nests.activation-range", 48.0));
+        nestSpawnsPerCycle = Math.max(0, config.getInt("nests.spawns-per-cycle", 1));
+        wanderDistance = config.getInt("nests.wander-distance", 16);
+        returnInterval = Math.max(1, config.getInt("nests.return-interval", 12000));
+
+        customColorsEnabled = config.getBoolean("colors.enabled", true);
+        Map<String, Double> colorMap = new LinkedHashMap<>();
+        ConfigurationSection colorsSection = config.getConfigurationSection("colors.list");
+        if (colorsSection != null) {
+            for (String color : colorsSection.getKeys(false)) {
+                colorMap.put(color.toUpperCase(), colorsSection.getDouble(color, 0.0));
+            }
+        }
+        colorChances = Collections.unmodifiableMap(colorMap);
+
+        // Only positive weights take part; order follows the config file
+        List<RatColor> colorList = new ArrayList<>();
+        List<Double> weightList = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : colorMap.entrySet()) {
+            if (entry.getValue() > 0) {
+                colorList.add(new RatColor(entry.getKey()));
+                weightList.add(entry.getValue());
+            }
+        }
+        colors = colorList.toArray(new RatColor[0]);
+        if (colors.length == 0) {
+            colorSampler = null;
+        } else {
+            double[] weights = new double[colors.length];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = weightList.get(i);
+            }
+            colorSampler = new AliasTable(weights);
+        }
+
+        behaviorInterval = Math.max(1, config.getInt("performance.behavior-interval", 20));
+        behaviorBudgetNanos = Math.max(10000L, config.getLong("performance.behavior-budget-nanos", 1000000L));
+        spawnsPerTick = Math.max(1, config.getInt("performance.spawns-per-tick", 5));
+        removalsPerTick = Math.max(1, config.getInt("performance.removals-per-tick", 50));
+        soundsPerChunk = Math.max(1, config.getInt("performance.sounds-per-chunk", 2));
+        hibernationDistance = Math.max(0.0, config.getDouble("performance.hibernation-distance", 48.0));
+        hibernationSilent = config.getBoolean("performance.hibernation-silent", true);
+        playerGridInterval = Math.max(1, config.getInt("performance.player-grid-interval", 5));
+        nameplateDistance = Math.max(0.0, config.getDouble("performance.nameplate-distance", 24.0));
+
+        prometheusFileEnabled = config.getBoolean("metrics.prometheus-file", false);
+        prometheusInterval = Math.max(1, config.getInt("metrics.prometheus-interval", 15));
+
+        prefix = config.getString("messages.prefix", "&7[&eMinecraftRats&7] ");
+        reloadMessage = config.getString("messages.reload", "&aConfiguration reloaded successfully!");
+        spawnMessage = config.getString("messages.spawn", "&aSpawned %amount% rats!");
+        killMessage = config.getString("messages.kill", "&cKilled %amount% rats!");
+        noPermissionMessage = config.getString("messages.no-permission", "&cYou don't have permission to use this command!");
+    }
+
+    /**
+     * Compile a settings snapshot from a loaded configuration
+     *
+     * @param config The loaded configuration
+     * @param problems The list to add a line to for every invalid entry
+     * @return The compiled settings
+     */
+    public static RatSettings compile(FileConfiguration config, List<String> problems) {
+        return new RatSettings(config, problems);
+    }
+
+    private static List<Biome> parseBiomes(List<String> names, String listName, List<String> problems) {
+        List<Biome> biomes = new ArrayList<>();
+        for (String biomeName : names) {
+            try {
+                biomes.add(Biome.valueOf(biomeName.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                problems.add("Invalid biome in " + listName + " list: " + biomeName);
+            }
+        }
+        return Collections.unmodifiableList(biomes);
+    }
+
+    private static List<XMaterial> parseMaterials(List<String> names, String listName, List<String> problems) {
+        List<XMaterial> materials = new ArrayList<>();
+        for (String materialName : names) {
+            Optional<XMaterial> material = XMaterial.matchXMaterial(materialName.toUpperCase());
+            if (material.isPresent()) {
+                materials.add(material.get());
+            } else {
+                problems.add("Invalid material in " + listName + " list: " + materialName);
+            }
+        }
+        return Collections.unmodifiableList(materials);
+    }
+
+    private static Set<Material> toMaterialSet(List<XMaterial> materials) {
+        Set<Material> set = EnumSet.noneOf(Material.class);
+        for (XMaterial xmat : materials) {
+            Material material = xmat.parseMaterial();
+            if (material != null) {
+                set.add(material);
+            }
+        }
+        return set;
+    }
+
+    private static <E extends Enum<E>> Set<E> toEnumSet(List<E> values, Class<E> type) {
+        return values.isEmpty() ? EnumSet.noneOf(type) : EnumSet.copyOf(values);
+    }
+
+    private static int parseLimit(int value) {
+        // 0 or less means no limit
+        return value <= 0 ? Integer.MAX_VALUE : value;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    public double getRatHealth() {
+        return ratHealth;
+    }
+
+    public double getRatSpeed() {
+        return ratSpeed;
+    }
+
+    public double getRatDamage() {
+        return ratDamage;
+    }
+
+    public boolean isRatAttackPlayers() {
+        return ratAttackPlayers;
+    }
+
+    public boolean isRatAttackMobs() {
+        return ratAttackMobs;
+    }
+
+    public List<EntityType> getRatScaredOf() {
+        return ratScaredOf;
+    }
+
+    public boolean hasScaredOf() {
+        return !ratScaredOfTypes.isEmpty();
+    }
+
+    public boolean isScaredOf(EntityType type) {
+        return ratScaredOfTypes.contains(type);
+    }
+
+    public boolean isRatStealItems() {
+        return ratStealItems;
+    }
+
+    public int getRatMaxItems() {
+        return ratMaxItems;
+    }
+
+    public Sound getRatSound() {
+        return ratSound;
+    }
+
+    public int getRatSoundInterval() {
+        return ratSoundInterval;
+    }
+
+    public boolean isNaturalSpawningEnabled() {
+        return naturalSpawning;
+    }
+
+    public int getSpawnInterval() {
+        return spawnInterval;
+    }
+
+    public int getMaxRats() {
+        return maxRats;
+    }
+
+    public int getMaxRatsPerWorld() {
+        return maxRatsPerWorld;
+    }
+
+    public int getMaxRatsPerChunk() {
+        return maxRatsPerChunk;
+    }
+
+    public int getMaxRatsPerRegion() {
+        return maxRatsPerRegion;
+    }
+
+    public int getMaxRatsPerPlayer() {
+        return maxRatsPerPlayer;
+    }
+
+    public int getMinLightLevel() {
+        return minLightLevel;
+    }
+
+    public int getMaxLightLevel() {
+        return maxLightLevel;
+    }
+
+    public boolean isLightLevelAllowed(int lightLevel) {
+        return lightLevel >= minLightLevel && lightLevel <= maxLightLevel;
+    }
+
+    public double getSpawnChance() {
+        return spawnChance;
+    }
+
+    public List<String> getEnabledWorlds() {
+        return enabledWorlds;
+    }
+
+    public boolean isWorldEnabled(World world) {
+        return enabledWorldNames.contains(world.getName());
+    }
+
+    public boolean isWorldEnabled(String worldName) {
+        return enabledWorldNames.contains(worldName);
+    }
+
+    public List<Biome> getPreferredBiomes() {
+        return preferredBiomes;
+    }
+
+    public boolean isBiomePreferred(Biome biome) {
+        return preferredBiomeSet.contains(biome);
+    }
+
+    public double getPreferredBiomeWeight() {
+        return preferredBiomeWeight;
+    }
+
+    public List<Biome> getDisabledBiomes() {
+        return disabledBiomes;
+    }
+
+    public boolean isBiomeDisabled(Biome biome) {
+        return disabledBiomeSet.contains(biome);
+    }
+
+    public boolean isBlockSpawningEnabled() {
+        return blockSpawningEnabled;
+    }
+
+    public double getBlockSpawnChance() {
+        return blockSpawnChance;
+    }
+
+    public List<XMaterial> getSpawnBlocks() {
+        return spawnBlocks;
+    }
+
+    public boolean isSpawnBlock(Material material) {
+        return spawnBlockMaterials.contains(material);
+    }
+
+    public boolean isDropsEnabled() {
+        return dropsEnabled;
+    }
+
+    public Map<XMaterial, ConfigManager.RatDrop> getDrops() {
+        return drops;
+    }
+
+    /**
+     * Get the drop entries in config order. The array is shared and must not be modified.
+     *
+     * @return The drop table
+     */
+    public ConfigManager.RatDrop[] getDropTable() {
+        return dropTable;
+    }
+
+    /**
+     * Get the prebuilt item for a drop table entry. Clone it before handing it out.
+     *
+     * @param index The index into {@link #getDropTable()}
+     * @return The item template
+     */
+    public ItemStack getDropTemplate(int index) {
+        return dropTemplates[index];
+    }
+
+    public boolean isNestsEnabled() {
+        return nestsEnabled;
+    }
+
+    public List<XMaterial> getNestMaterials() {
+        return nestMaterials;
+    }
+
+    public boolean isNestMaterial(Material material) {
+        return nestMaterialSet.contains(material);
+    }
+
+    public int getMaxNests() {
+        return maxNests;
+    }
+
+    public int getNestCapacity() {
+        return nestCapacity;
+    }
+
+    public double getNestGrowthRate() {
+        return nestGrowthRate;
+    }
+
+    public int getNestMaterializeCap() {
+        return nestMaterializeCap;
+    }
+
+    public double getNestActivationRange() {
+        return nestActivationRange;
+    }
+
+    public int getNestSpawnsPerCycle() {
+        return nestSpawnsPerCycle;
+    }
+
+    public int getWanderDistance() {
+        return wanderDistance;
+    }
+
+    public int getReturnInterval() {
+        return returnInterval;
+    }
+
+    public boolean isCustomColorsEnabled() {
+        return customColorsEnabled;
+    }
+
+    public Map<String, Double> getColorChances() {
+        return colorChances;
+    }
+
+    /**
+     * Pick a rat color according to the configured chances
+     *
+     * @param random The random source
+     * @return The picked color, or the default color if custom colors are off
+     */
+    public RatColor pickColor(Random random) {
+        if (!customColorsEnabled || colorSampler == null) {
+            return RatColor.DEFAULT;
+        }
+        return colors[colorSampler.sample(random)];
+    }
+
+    public int getBehaviorInterval() {
+        return behaviorInterval;
+    }
+
+    public long getBehaviorBudgetNanos() {
+        return behaviorBudgetNanos;
+    }
+
+    public int getSpawnsPerTick() {
+        return spawnsPerTick;
+    }
+
+    public int getRemovalsPerTick() {
+        return removalsPerTick;
+    }
+
+    public int getSoundsPerChunk() {
+        return soundsPerChunk;
+    }
+
+    public boolean isHibernationEnabled() {
+        return hibernationDistance > 0;
+    }
+
+    public double getHibernationDistance() {
+        return hibernationDistance;
+    }
+
+    public boolean isHibernationSilent() {
+        return hibernationSilent;
+    }
+
+    public int getPlayerGridInterval() {
+        return playerGridInterval;
+    }
+
+    public boolean isNameplateLodEnabled() {
+        return nameplateDistance > 0;
+    }
+
+    public double getNameplateDistance() {
+        return nameplateDistance;
+    }
+
+    public boolean isPrometheusFileEnabled() {
+        return prometheusFileEnabled;
+    }
+
+    public int getPrometheusInterval() {
+        return prometheusInterval;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getReloadMessage() {
+        return reloadMessage;
+    }
+
+    public String getSpawnMessage() {
+        return spawnMessage;
+    }
+
+    public String getKillMessage() {
+        return killMessage;
+    }
+
+    public String getNoPermissionMessage() {
+        return noPermissionMessage;
+    }
+
+    /**
+     * A rat color with its display strings built once
+     */
+    public static final class RatColor {
+        public static final RatColor DEFAULT = new RatColor("BROWN");
+
+        private final String key;
+        private final String displayName;
+        private final String customName;
+
+        private RatColor(String key) {
+            this.key = key;
+            this.displayName = key.substring(0, 1).toUpperCase() + key.substring(1).toLowerCase();
+            this.customName = "§7" + displayName + " Rat";
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public String getCustomName() {
+            return customName;
+        }
+    }
+}
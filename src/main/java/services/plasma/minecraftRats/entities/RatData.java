@@ -0,0 +1,208 @@
+package services.plasma.minecraftRats.entities;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+import services.plasma.minecraftRats.MinecraftRats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Utility class for the rat data stored in an entity's persistent data container.
+ * Unlike metadata, this survives chunk unloads and server restarts.
+ */
+public class RatData {
+
+    /**
+     * Largest serialized inventory a rat may carry, so items with huge NBT can't bloat the entity
+     */
+    public static final int MAX_INVENTORY_BYTES = 16384;
+
+    private static NamespacedKey ratKey;
+    private static NamespacedKey colorKey;
+    private static NamespacedKey itemsKey;
+    private static NamespacedKey inventoryKey;
+    private static NamespacedKey nestKey;
+    private static Logger logger;
+
+    /**
+     * Create the data keys for the plugin
+     *
+     * @param plugin The plugin instance
+     */
+    public static void init(MinecraftRats plugin) {
+        ratKey = new NamespacedKey(plugin, "rat");
+        colorKey = new NamespacedKey(plugin, "color");
+        itemsKey = new NamespacedKey(plugin, "stolen_items");
+        inventoryKey = new NamespacedKey(plugin, "inventory");
+        nestKey = new NamespacedKey(plugin, "nest_id");
+        logger = plugin.getLogger();
+    }
+
+    /**
+     * Mark an entity as a rat
+     *
+     * @param entity The entity
+     * @param color The display name of the rat color
+     */
+    public static void tag(Entity entity, String color) {
+        PersistentDataContainer data = entity.getPersistentDataContainer();
+        data.set(ratKey, PersistentDataType.BYTE, (byte) 1);
+        data.set(colorKey, PersistentDataType.STRING, color);
+    }
+
+    /**
+     * Check if an entity carries the rat tag. Prefer the registry for
+     * entities that are already loaded; this is for rehydrating it.
+     *
+     * @param entity The entity
+     * @return True if the entity is tagged as a rat
+     */
+    public static boolean isTagged(Entity entity) {
+        return entity.getType() == EntityType.SILVERFISH
+                && entity.getPersistentDataContainer().has(ratKey, PersistentDataType.BYTE);
+    }
+
+    /**
+     * Get the color of a rat
+     *
+     * @param entity The rat entity
+     * @return The display name of the color, or null if it has none
+     */
+    public static String getColor(Entity entity) {
+        return entity.getPersistentDataContainer().get(colorKey, PersistentDataType.STRING);
+    }
+
+    /**
+     * Get the number of items a rat has stolen
+     *
+     * @param entity The rat entity
+     * @return The number of stolen items
+     */
+    public static int getStolenItemCount(Entity entity) {
+        Integer count = entity.getPersistentDataContainer().get(itemsKey, PersistentDataType.INTEGER);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Get the items a rat carries
+     *
+     * @param entity The rat entity
+     * @return A mutable list of the stolen items, empty if it carries nothing
+     */
+    public static List<ItemStack> getStolenItems(Entity entity) {
+        byte[] data = entity.getPersistentDataContainer().get(inventoryKey, PersistentDataType.BYTE_ARRAY);
+        if (data == null || data.length == 0) {
+            return new ArrayList<>();
+        }
+
+        try (BukkitObjectInputStream in = new BukkitObjectInputStream(new ByteArrayInputStream(data))) {
+            int count = in.readInt();
+            List<ItemStack> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add((ItemStack) in.readObject());
+            }
+            return items;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logger.warning("Discarding unreadable rat inventory: " + e.getMessage());
+            entity.getPersistentDataContainer().remove(inventoryKey);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Store the items a rat carries and update its stolen item count
+     *
+     * @param entity The rat entity
+     * @param items The stolen items
+     * @return False if the items serialize to more than {@link #MAX_INVENTORY_BYTES}, in which case nothing is stored
+     */
+    public static boolean setStolenItems(Entity entity, List<ItemStack> items) {
+        PersistentDataContainer data = entity.getPersistentDataContainer();
+        if (items.isEmpty()) {
+            data.remove(inventoryKey);
+            data.remove(itemsKey);
+            return true;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = serialize(items);
+        } catch (IOException e) {
+            logger.warning("Could not store rat inventory: " + e.getMessage());
+            return false;
+        }
+
+        if (bytes.length > MAX_INVENTORY_BYTES) {
+            return false;
+        }
+
+        int count = 0;
+        for (ItemStack item : items) {
+            count += item.getAmount();
+        }
+
+        data.set(inventoryKey, PersistentDataType.BYTE_ARRAY, bytes);
+        data.set(itemsKey, PersistentDataType.INTEGER, count);
+        return true;
+    }
+
+    /**
+     * Remove and return everything a rat carries
+     *
+     * @param entity The rat entity
+     * @return The stolen items
+     */
+    public static List<ItemStack> takeStolenItems(Entity entity) {
+        if (getStolenItemCount(entity) == 0) {
+            return Collections.emptyList();
+        }
+
+        List<ItemStack> items = getStolenItems(entity);
+        setStolenItems(entity, Collections.<ItemStack>emptyList());
+        return items;
+    }
+
+    private static byte[] serialize(List<ItemStack> items) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (BukkitObjectOutputStream out = new BukkitObjectOutputStream(bytes)) {
+            out.writeInt(items.size());
+            for (ItemStack item : items) {
+                out.writeObject(item);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Get the id of the nest a rat belongs to
+     *
+     * @param entity The rat entity
+     * @return The nest id, or 0 if the rat has no nest
+     */
+    public static int getNestId(Entity entity) {
+        Integer id = entity.getPersistentDataContainer().get(nestKey, PersistentDataType.INTEGER);
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * Set the id of the nest a rat belongs to
+     *
+     * @param entity The rat entity
+     * @param nestId The nest id
+     */
+    public static void setNestId(Entity entity, int nestId) {
+        entity.getPersistentDataContainer().set(nestKey, PersistentDataType.INTEGER, nestId);
+    }
+}
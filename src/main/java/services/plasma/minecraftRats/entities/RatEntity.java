@@ -3,66 +3,66 @@ package services.plasma.minecraftRats.entities;
 import org.bukkit.Location;
 import org.bukkit.Sound;
 import org.bukkit.entity.Entity;
-import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Item;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.metadata.FixedMetadataValue;
 import org.bukkit.util.Vector;
 import services.plasma.minecraftRats.MinecraftRats;
 import services.plasma.minecraftRats.config.ConfigManager;
+import services.plasma.minecraftRats.config.RatSettings;
+import services.plasma.minecraftRats.managers.FlowField;
+import services.plasma.minecraftRats.managers.Nest;
 import services.plasma.minecraftRats.managers.RatManager;
+import services.plasma.minecraftRats.managers.RatRegistry;
+import services.plasma.minecraftRats.managers.SpatialIndex;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Utility class for rat entity behavior
  */
 public class RatEntity {
 
-    private static final Random random = new Random();
+    private static final double ARRIVAL_DISTANCE_SQUARED = 1.5 * 1.5;
+
+    // Region threads visit rats in parallel, so each thread gets its own scratch location
+    private static final ThreadLocal<Location> scratchLocation = ThreadLocal.withInitial(() -> new Location(null, 0, 0, 0));
 
     /**
-     * Apply rat behavior to a rat entity
+     * Apply rat behavior to a rat entity. Called by the behavior scheduler
+     * once every behavior interval per rat.
      *
      * @param rat The rat entity
      */
     public static void applyRatBehavior(LivingEntity rat) {
         MinecraftRats plugin = MinecraftRats.getInstance();
-        ConfigManager configManager = plugin.getConfigManager();
+        RatSettings settings = plugin.getConfigManager().getSettings();
         RatManager ratManager = plugin.getRatManager();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
 
-        if (!rat.hasMetadata("minecraftrats")) {
-            return;
-        }
+        Location scratch = rat.getLocation(scratchLocation.get());
 
-        if (random.nextInt(configManager.getRatSoundInterval()) == 0) {
-            rat.getWorld().playSound(rat.getLocation(), configManager.getRatSound(), 0.5f, 1.2f);
+        // Each visit stands in for a whole behavior interval of ticks
+        if (random.nextInt(settings.getRatSoundInterval()) < settings.getBehaviorInterval()) {
+            ratManager.getSoundAggregator().play(scratch, settings.getRatSound(), 0.5f, 1.2f);
         }
 
-        if (!configManager.getRatScaredOf().isEmpty()) {
-            List<Entity> nearbyEntities = rat.getNearbyEntities(8, 8, 8);
-            for (Entity entity : nearbyEntities) {
-                if (configManager.getRatScaredOf().contains(entity.getType())) {
-                    runAwayFrom(rat, entity.getLocation());
-                    return;
-                }
+        if (settings.hasScaredOf()) {
+            Entity threat = ratManager.getSpatialIndex().nearestThreat(scratch.getWorld(),
+                    scratch.getX(), scratch.getY(), scratch.getZ(), 8);
+            if (threat != null) {
+                runAwayFrom(rat, threat.getLocation());
+                return;
             }
         }
 
-        if (configManager.isRatStealItems() && random.nextDouble() < 0.1) {
-            stealNearbyItems(rat);
+        if (settings.isNestsEnabled() && returnHome(rat, scratch, settings, ratManager, random)) {
+            return;
         }
 
-        if (configManager.isNestsEnabled() && random.nextInt(200) == 0) {
-            Location nestLocation = ratManager.getRatNest(rat.getUniqueId());
-            if (nestLocation != null && rat.getLocation().distance(nestLocation) < configManager.getWanderDistance()) {
-                moveTowards(rat, nestLocation);
-                return;
-            }
+        if (settings.isRatStealItems() && random.nextDouble() < 0.1) {
+            stealNearbyItems(rat, ratManager.getSpatialIndex());
         }
 
         if (random.nextInt(20) == 0) {
@@ -83,15 +83,101 @@ public class RatEntity {
     }
 
     /**
-     * Make the rat move towards a location
+     * Walk a returning rat one step closer to its nest. A rat starts returning
+     * about once per return interval, or straight away once it has strayed
+     * beyond the wander distance, and keeps returning on every visit until
+     * it arrives.
+     *
+     * @param rat The rat entity
+     * @param location The current location of the rat
+     * @param settings The current settings
+     * @param ratManager The rat manager
+     * @param random The random source
+     * @return True if the rat is returning and its other behavior should be skipped
+     */
+    private static boolean returnHome(LivingEntity rat, Location location, RatSettings settings,
+                                      RatManager ratManager, ThreadLocalRandom random) {
+        RatRegistry registry = ratManager.getRegistry();
+        boolean returning = registry.isReturning(rat);
+
+        Nest nest = ratManager.getRatNest(rat);
+        if (nest == null || !nest.getWorldId().equals(location.getWorld().getUID())) {
+            if (returning) {
+                registry.setReturning(rat, false);
+            }
+            return false;
+        }
+
+        if (!returning) {
+            double wanderDistance = settings.getWanderDistance();
+            boolean strayed = nest.distanceSquared(location.getX(), location.getY(), location.getZ())
+                    > wanderDistance * wanderDistance;
+
+            // Each visit stands in for a whole behavior interval of ticks
+            if (!strayed && random.nextInt(settings.getReturnInterval()) >= settings.getBehaviorInterval()) {
+                return false;
+            }
+            registry.setReturning(rat, true);
+        }
+
+        if (!moveTowards(rat, nest, location, ratManager.getFlowFields().get(nest, settings))) {
+            registry.setReturning(rat, false);
+        }
+        return true;
+    }
+
+    /**
+     * Make the rat move towards its nest. The nest's flow field gives the
+     * next step around walls; until the field is built, or outside the area
+     * it covers, the rat heads straight for the nest.
      *
      * @param rat The rat entity
-     * @param location The location to move towards
+     * @param nest The nest
+     * @param location The current location of the rat
+     * @param field The flow field of the nest, or null if it is not ready
+     * @return False if the rat has arrived or can't reach the nest, true if it is still on its way
      */
-    private static void moveTowards(LivingEntity rat, Location location) {
-        Vector direction = location.toVector().subtract(rat.getLocation().toVector()).normalize();
+    private static boolean moveTowards(LivingEntity rat, Nest nest, Location location, FlowField field) {
+        int blockX = location.getBlockX();
+        int blockY = location.getBlockY();
+        int blockZ = location.getBlockZ();
+
+        if (nest.distanceSquared(location.getX(), location.getY(), location.getZ()) < ARRIVAL_DISTANCE_SQUARED) {
+            return false;
+        }
 
-        rat.setVelocity(direction.multiply(0.3));
+        int step = -1;
+        if (field != null && field.contains(blockX, blockY, blockZ)) {
+            step = field.step(blockX, blockY, blockZ);
+            if (step < 0) {
+                // Mid-hop the rat is a block above its walkable cell
+                step = field.step(blockX, blockY - 1, blockZ);
+            }
+            if (step < 0 || step == FlowField.ARRIVED) {
+                // At the nest, or walled off from it
+                return false;
+            }
+        }
+
+        Vector direction;
+        if (step < 0) {
+            direction = new Vector(nest.getX() + 0.5 - location.getX(), nest.getY() - location.getY(),
+                    nest.getZ() + 0.5 - location.getZ());
+        } else {
+            // Head for the centre of the next cell
+            direction = new Vector(blockX + FlowField.stepX(step) + 0.5 - location.getX(), 0,
+                    blockZ + FlowField.stepZ(step) + 0.5 - location.getZ());
+        }
+
+        if (direction.lengthSquared() > 1.0E-4) {
+            direction.normalize().multiply(0.3);
+        }
+        if (step >= 0 && FlowField.stepY(step) > 0) {
+            // Hop up onto the next block
+            direction.setY(0.4);
+        }
+        rat.setVelocity(direction);
+        return true;
     }
 
     /**
@@ -100,6 +186,7 @@ public class RatEntity {
      * @param rat The rat entity
      */
     private static void randomMovement(LivingEntity rat) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
         double x = (random.nextDouble() - 0.5) * 0.2;
         double z = (random.nextDouble() - 0.5) * 0.2;
 
@@ -107,70 +194,84 @@ public class RatEntity {
     }
 
     /**
-     * Make the rat steal nearby items
+     * Make the rat steal nearby items. The stolen item is merged into a
+     * matching stack the rat already carries where it fits.
      *
      * @param rat The rat entity
+     * @param spatialIndex The index to find items in
      */
-    private static void stealNearbyItems(LivingEntity rat) {
+    private static void stealNearbyItems(LivingEntity rat, SpatialIndex spatialIndex) {
         MinecraftRats plugin = MinecraftRats.getInstance();
         ConfigManager configManager = plugin.getConfigManager();
 
-        int currentItems = 0;
-        if (rat.hasMetadata("rat_items")) {
-            currentItems = rat.getMetadata("rat_items").get(0).asInt();
-        }
-
-        if (currentItems >= configManager.getRatMaxItems()) {
+        // The count is a plain int in the data container, so check the cap before deserializing anything
+        if (RatData.getStolenItemCount(rat) >= configManager.getRatMaxItems()) {
             return;
         }
 
-        List<Entity> nearbyEntities = rat.getNearbyEntities(2, 2, 2);
-        List<Item> nearbyItems = new ArrayList<>();
+        Location location = rat.getLocation();
+        Item itemToSteal = spatialIndex.nearestItem(location.getWorld(),
+                location.getX(), location.getY(), location.getZ(), 2);
 
-        for (Entity entity : nearbyEntities) {
-            if (entity instanceof Item) {
-                nearbyItems.add((Item) entity);
-            }
+        if (itemToSteal == null || !itemToSteal.isValid()) {
+            return;
         }
 
-        if (!nearbyItems.isEmpty()) {
-            Item itemToSteal = nearbyItems.get(random.nextInt(nearbyItems.size()));
+        ItemStack source = itemToSteal.getItemStack();
+        ItemStack stolenItem = source.clone();
+        stolenItem.setAmount(1);
 
-            ItemStack stolenItem = itemToSteal.getItemStack().clone();
-            stolenItem.setAmount(1);
-            itemToSteal.getItemStack().setAmount(itemToSteal.getItemStack().getAmount() - 1);
+        List<ItemStack> inventory = RatData.getStolenItems(rat);
+        addToInventory(inventory, stolenItem);
+        if (!RatData.setStolenItems(rat, inventory)) {
+            return;
+        }
 
-            if (itemToSteal.getItemStack().getAmount() <= 0) {
-                itemToSteal.remove();
-            }
+        if (source.getAmount() <= 1) {
+            itemToSteal.remove();
+        } else {
+            source.setAmount(source.getAmount() - 1);
+            itemToSteal.setItemStack(source);
+        }
 
-            rat.setMetadata("rat_items", new FixedMetadataValue(plugin, currentItems + 1));
+        plugin.getRatManager().getSoundAggregator().play(location, Sound.ENTITY_SILVERFISH_AMBIENT, 0.5f, 1.0f);
 
-            rat.getWorld().playSound(rat.getLocation(), Sound.ENTITY_SILVERFISH_AMBIENT, 0.5f, 1.0f);
+        if (configManager.isDebug()) {
+            plugin.getLogger().info("Rat stole item: " + stolenItem.getType().name());
+        }
+    }
 
-            if (configManager.isDebug()) {
-                plugin.getLogger().info("Rat stole item: " + stolenItem.getType().name());
+    /**
+     * Add an item to a rat inventory, merging it into similar stacks first
+     *
+     * @param inventory The rat inventory
+     * @param item The item to add
+     */
+    private static void addToInventory(List<ItemStack> inventory, ItemStack item) {
+        for (ItemStack stack : inventory) {
+            if (stack.isSimilar(item)) {
+                int space = stack.getMaxStackSize() - stack.getAmount();
+                int moved = Math.min(space, item.getAmount());
+                if (moved > 0) {
+                    stack.setAmount(stack.getAmount() + moved);
+                    item.setAmount(item.getAmount() - moved);
+                    if (item.getAmount() <= 0) {
+                        return;
+                    }
+                }
             }
         }
+        inventory.add(item);
     }
 
     /**
-     * Drop stolen items when the rat dies
+     * Hand back the real items a rat stole, for dropping in one batch with
+     * the rest of its death drops
      *
      * @param rat The rat entity
+     * @param drops The drop list to add the stolen items to
      */
-    public static void dropStolenItems(LivingEntity rat) {
-        if (rat.hasMetadata("rat_items")) {
-            int stolenItems = rat.getMetadata("rat_items").get(0).asInt();
-
-            for (int i = 0; i < stolenItems; i++) {
-                EntityType[] commonItems = {
-                        EntityType.DROPPED_ITEM
-                };
-
-                Location dropLocation = rat.getLocation();
-                dropLocation.getWorld().dropItemNaturally(dropLocation, new ItemStack(org.bukkit.Material.GOLD_NUGGET, 1));
-            }
-        }
+    public static void addStolenItems(LivingEntity rat, List<ItemStack> drops) {
+        drops.addAll(RatData.takeStolenItems(rat));
     }
 }
\ No newline at end of file
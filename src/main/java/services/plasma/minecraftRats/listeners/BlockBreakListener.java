@@ -1,15 +1,16 @@
 package services.plasma.minecraftRats.listeners;
 
-import com.cryptomorin.xseries.XMaterial;
 import org.bukkit.Location;
-import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 import services.plasma.minecraftRats.MinecraftRats;
 import services.plasma.minecraftRats.config.ConfigManager;
+import services.plasma.minecraftRats.config.RatSettings;
 import services.plasma.minecraftRats.managers.RatManager;
+import services.plasma.minecraftRats.metrics.RatMetrics;
 
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -18,57 +19,59 @@ public class BlockBreakListener implements Listener {
     private final MinecraftRats plugin;
     private final ConfigManager configManager;
     private final RatManager ratManager;
+    private final RatMetrics metrics;
 
     public BlockBreakListener(MinecraftRats plugin) {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
         this.ratManager = plugin.getRatManager();
+        this.metrics = plugin.getMetrics();
     }
 
-    @EventHandler
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
-        if (!configManager.isEnabled()) {
-            return;
-        }
+        long start = System.nanoTime();
+        handleBlockBreak(event);
+        metrics.getBlockBreakListener().recordSince(start);
+    }
 
-        if (!configManager.isBlockSpawningEnabled()) {
+    private void handleBlockBreak(BlockBreakEvent event) {
+        RatSettings settings = configManager.getSettings();
+
+        if (!settings.isEnabled()) {
             return;
         }
 
-        String worldName = event.getBlock().getWorld().getName();
-        if (!configManager.getEnabledWorlds().contains(worldName)) {
+        if (!settings.isBlockSpawningEnabled()) {
             return;
         }
 
-        if (ratManager.getAllRats().size() >= configManager.getMaxRats()) {
+        Block block = event.getBlock();
+        if (!settings.isSpawnBlock(block.getType())) {
             return;
         }
 
-        Block block = event.getBlock();
-        Material blockMaterial = block.getType();
-
-        boolean isValidBlock = false;
-        for (XMaterial xmat : configManager.getSpawnBlocks()) {
-            if (xmat.parseMaterial() == blockMaterial) {
-                isValidBlock = true;
-                break;
-            }
+        if (!settings.isWorldEnabled(block.getWorld())) {
+            return;
         }
 
-        if (!isValidBlock) {
+        if (ratManager.getRatCount() >= settings.getMaxRats()) {
             return;
         }
 
         double random = ThreadLocalRandom.current().nextDouble();
-        if (random > configManager.getBlockSpawnChance()) {
+        if (random > settings.getBlockSpawnChance()) {
             return;
         }
 
         Location spawnLoc = block.getLocation().add(0.5, 0.1, 0.5);
+        if (!ratManager.canSpawnAt(spawnLoc, settings)) {
+            return;
+        }
 
         ratManager.spawnRat(spawnLoc);
 
-        if (configManager.isDebug()) {
+        if (settings.isDebug()) {
             plugin.getLogger().info("Spawned a rat from broken block at " +
                     spawnLoc.getWorld().getName() + " (" +
                     spawnLoc.getBlockX() + ", " +
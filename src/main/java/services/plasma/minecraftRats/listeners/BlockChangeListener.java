@@ -0,0 +1,84 @@
+package services.plasma.minecraftRats.listeners;
+
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.managers.RatManager;
+
+import java.util.List;
+
+/**
+ * Drops cached spawn cells and flow fields for chunks whose blocks or light sources changed
+ */
+public class BlockChangeListener implements Listener {
+
+    private final RatManager ratManager;
+
+    public BlockChangeListener(MinecraftRats plugin) {
+        this.ratManager = plugin.getRatManager();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        invalidate(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        invalidate(event.blockList());
+    }
+
+    private void invalidate(Block block) {
+        ratManager.invalidateChunkCaches(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+    }
+
+    private void invalidate(List<Block> blocks) {
+        int lastX = Integer.MIN_VALUE;
+        int lastZ = Integer.MIN_VALUE;
+
+        for (Block block : blocks) {
+            int chunkX = block.getX() >> 4;
+            int chunkZ = block.getZ() >> 4;
+            // Explosions list neighbouring blocks together, so skip repeats of the same chunk
+            if (chunkX != lastX || chunkZ != lastZ) {
+                ratManager.invalidateChunkCaches(block.getWorld(), chunkX, chunkZ);
+                lastX = chunkX;
+                lastZ = chunkZ;
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package services.plasma.minecraftRats.listeners;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.entities.RatData;
+import services.plasma.minecraftRats.managers.RatManager;
+import services.plasma.minecraftRats.managers.RatRegistry;
+
+public class ChunkListener implements Listener {
+
+    private final RatManager ratManager;
+    private final RatRegistry registry;
+
+    public ChunkListener(MinecraftRats plugin) {
+        this.ratManager = plugin.getRatManager();
+        this.registry = ratManager.getRegistry();
+    }
+
+    /**
+     * Register rats that come back with a loaded chunk and materialize the
+     * virtual populations of its nests
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        if (event.isNewChunk()) {
+            return;
+        }
+
+        ratManager.materializeNests(event.getChunk());
+
+        for (Entity entity : event.getChunk().getEntities()) {
+            if (RatData.isTagged(entity)) {
+                ratManager.registerLoadedRat((LivingEntity) entity);
+            }
+        }
+    }
+
+    /**
+     * Register rats whose entities are loaded separately from their chunk
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            if (RatData.isTagged(entity)) {
+                ratManager.registerLoadedRat((LivingEntity) entity);
+            }
+        }
+    }
+
+    /**
+     * Drop rats whose entities are unloaded separately from their chunk.
+     * Nest members become virtual population instead of being saved.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            if (!ratManager.isRat(entity) || !ratManager.dematerialize((LivingEntity) entity)) {
+                registry.unregister(entity);
+            }
+        }
+    }
+
+    /**
+     * Suspend the nests, cached spawn cells and flow fields of an unloading
+     * chunk. Its rats are dropped when their entities unload, which may
+     * happen after this event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        ratManager.suspendNests(event.getChunk());
+        ratManager.invalidateChunkCaches(event.getWorld(), event.getChunk().getX(), event.getChunk().getZ());
+    }
+}
@@ -0,0 +1,42 @@
+package services.plasma.minecraftRats.listeners;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntitySpawnEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.config.ConfigManager;
+import services.plasma.minecraftRats.config.RatSettings;
+import services.plasma.minecraftRats.managers.SpatialIndex;
+
+public class EntityTrackingListener implements Listener {
+
+    private final ConfigManager configManager;
+    private final SpatialIndex spatialIndex;
+
+    public EntityTrackingListener(MinecraftRats plugin) {
+        this.configManager = plugin.getConfigManager();
+        this.spatialIndex = plugin.getRatManager().getSpatialIndex();
+    }
+
+    /**
+     * Track predators and dropped items as they spawn
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntitySpawn(EntitySpawnEvent event) {
+        spatialIndex.track(event.getEntity(), configManager.getSettings());
+    }
+
+    /**
+     * Track predators and dropped items loaded with a chunk
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        RatSettings settings = configManager.getSettings();
+        for (Entity entity : event.getEntities()) {
+            spatialIndex.track(entity, settings);
+        }
+    }
+}
@@ -4,41 +4,29 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityDeathEvent;
-import org.bukkit.event.entity.EntitySpawnEvent;
 import org.bukkit.event.entity.EntityTargetEvent;
-import org.bukkit.inventory.ItemStack;
 import services.plasma.minecraftRats.MinecraftRats;
 import services.plasma.minecraftRats.config.ConfigManager;
 import services.plasma.minecraftRats.entities.RatEntity;
 import services.plasma.minecraftRats.managers.RatManager;
-
-import java.util.List;
+import services.plasma.minecraftRats.metrics.RatMetrics;
 
 public class RatListener implements Listener {
 
     private final MinecraftRats plugin;
     private final ConfigManager configManager;
     private final RatManager ratManager;
+    private final RatMetrics metrics;
 
     public RatListener(MinecraftRats plugin) {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
         this.ratManager = plugin.getRatManager();
-    }
-
-    /**
-     * Handle entity spawn events to apply rat behavior
-     */
-    @EventHandler
-    public void onEntitySpawn(EntitySpawnEvent event) {
-        Entity entity = event.getEntity();
-
-        if (entity instanceof LivingEntity && entity.hasMetadata("minecraftrats")) {
-            RatEntity.applyRatBehavior((LivingEntity) entity);
-        }
+        this.metrics = plugin.getMetrics();
     }
 
     /**
@@ -47,74 +35,75 @@ public class RatListener implements Listener {
     @EventHandler
     public void onEntityDeath(EntityDeathEvent event) {
         LivingEntity entity = event.getEntity();
+        if (!ratManager.isRat(entity)) {
+            return;
+        }
+
+        long start = System.nanoTime();
 
-        if (entity.hasMetadata("minecraftrats")) {
-            event.getDrops().clear();
+        event.getDrops().clear();
 
-            if (configManager.isDropsEnabled()) {
-                List<ItemStack> drops = ratManager.getRatDrops();
-                event.getDrops().addAll(drops);
+        if (configManager.isDropsEnabled()) {
+            ratManager.addRatDrops(event.getDrops());
+        }
 
-                RatEntity.dropStolenItems(entity);
-            }
+        // Stolen items belong to players, so they come back even when loot drops are off
+        RatEntity.addStolenItems(entity, event.getDrops());
 
-            if (entity.getUniqueId() != null) {
-                plugin.getRatManager().getAllRats().remove(entity);
-            }
+        ratManager.unregisterRat(entity);
 
-            if (configManager.isDebug()) {
-                plugin.getLogger().info("Rat died!");
-            }
+        if (configManager.isDebug()) {
+            plugin.getLogger().info("Rat died!");
         }
+
+        metrics.getDeathListener().recordSince(start);
     }
 
     /**
-     * Handle entity targeting to implement rat AI
+     * Handle entity targeting to restrict what rats attack. Mob farms fire
+     * these constantly, so everything but a rat is rejected before any work.
      */
-    @EventHandler
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
     public void onEntityTarget(EntityTargetEvent event) {
         Entity entity = event.getEntity();
-        Entity target = event.getTarget();
-
-        if (entity.hasMetadata("minecraftrats")) {
-            if (target instanceof Player && !configManager.isRatAttackPlayers()) {
-                event.setCancelled(true);
-                return;
-            }
+        if (!ratManager.isRat(entity)) {
+            return;
+        }
 
-            if (!(target instanceof Player) && !configManager.isRatAttackMobs()) {
-                event.setCancelled(true);
-                return;
-            }
+        long start = System.nanoTime();
+        Entity target = event.getTarget();
 
-            RatEntity.applyRatBehavior((LivingEntity) entity);
+        if (target instanceof Player && !configManager.isRatAttackPlayers()) {
+            event.setCancelled(true);
+        } else if (!(target instanceof Player) && !configManager.isRatAttackMobs()) {
+            event.setCancelled(true);
         }
+
+        metrics.getTargetListener().recordSince(start);
     }
 
     /**
-     * Handle damage events for rat combat
+     * Handle damage events for rat combat. Only damage dealt by a rat is
+     * touched, and everything else is rejected on the damager's type.
      */
-    @EventHandler
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
     public void onEntityDamage(EntityDamageByEntityEvent event) {
         Entity damager = event.getDamager();
-        Entity damaged = event.getEntity();
+        if (!ratManager.isRat(damager)) {
+            return;
+        }
 
-        if (damager.hasMetadata("minecraftrats")) {
-            event.setDamage(configManager.getRatDamage());
+        long start = System.nanoTime();
+        Entity damaged = event.getEntity();
 
-            if (damaged instanceof Player && !configManager.isRatAttackPlayers()) {
-                event.setCancelled(true);
-                return;
-            }
+        event.setDamage(configManager.getRatDamage());
 
-            if (!(damaged instanceof Player) && !configManager.isRatAttackMobs()) {
-                event.setCancelled(true);
-                return;
-            }
+        if (damaged instanceof Player && !configManager.isRatAttackPlayers()) {
+            event.setCancelled(true);
+        } else if (!(damaged instanceof Player) && !configManager.isRatAttackMobs()) {
+            event.setCancelled(true);
         }
 
-        if (damaged.hasMetadata("minecraftrats")) {
-            RatEntity.applyRatBehavior((LivingEntity) damaged);
-        }
+        metrics.getDamageListener().recordSince(start);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.ChunkSnapshot;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A breadth-first distance field around a nest. Every walkable cell in the
+ * box around the nest stores the step that brings a rat one cell closer to
+ * the nest, so a rat finds its next step with a single array read. Walkable
+ * cells are air with a solid block below; rats move between neighbouring
+ * columns and can climb or drop one block at a time.
+ */
+public class FlowField {
+
+    /**
+     * Step value of the nest cell itself
+     */
+    public static final int ARRIVED = 12;
+
+    private static final byte UNREACHABLE = -1;
+
+    // Each step is followed by its opposite, so reversing a step is k ^ 1
+    private static final int[] STEP_X = {1, -1, 0, 0, 1, -1, -1, 1, 0, 0, 0, 0};
+    private static final int[] STEP_Y = {0, 0, 0, 0, 1, -1, 1, -1, 1, -1, 1, -1};
+    private static final int[] STEP_Z = {0, 0, 1, -1, 0, 0, 0, 0, 1, -1, -1, 1};
+
+    private final Nest nest;
+    private final UUID worldId;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final byte[] steps;
+
+    private FlowField(Nest nest, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ) {
+        this.nest = nest;
+        this.worldId = nest.getWorldId();
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.steps = new byte[sizeX * sizeY * sizeZ];
+    }
+
+    /**
+     * Build the field for a nest from snapshots of the chunks around it.
+     * Cells in chunks without a snapshot are treated as blocked.
+     *
+     * @param nest The nest
+     * @param radius The horizontal reach of the field in blocks
+     * @param height The vertical reach of the field in blocks
+     * @param minHeight The minimum height of the world
+     * @param maxHeight The maximum height of the world
+     * @param snapshots The chunk snapshots by chunk key
+     * @return The flow field
+     */
+    static FlowField compute(Nest nest, int radius, int height, int minHeight, int maxHeight,
+                             Map<Long, ChunkSnapshot> snapshots) {
+        int minY = Math.max(minHeight + 1, nest.getY() - height);
+        int maxY = Math.max(minY, Math.min(maxHeight - 2, nest.getY() + height));
+        FlowField field = new FlowField(nest, nest.getX() - radius, minY, nest.getZ() - radius,
+                radius * 2 + 1, maxY - minY + 1, radius * 2 + 1);
+
+        // One extra layer below and above, so every cell can check its floor and headroom
+        int layers = field.sizeY + 2;
+        boolean[] solid = new boolean[field.sizeX * layers * field.sizeZ];
+        for (int x = 0; x < field.sizeX; x++) {
+            for (int z = 0; z < field.sizeZ; z++) {
+                int blockX = field.minX + x;
+                int blockZ = field.minZ + z;
+                ChunkSnapshot snapshot = snapshots.get(RatRegistry.chunkKey(blockX >> 4, blockZ >> 4));
+                for (int y = 0; y < layers; y++) {
+                    solid[(x * layers + y) * field.sizeZ + z] = snapshot == null
+                            || snapshot.getBlockType(blockX & 15, minY - 1 + y, blockZ & 15).isSolid();
+                }
+            }
+        }
+
+        byte[] steps = field.steps;
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = UNREACHABLE;
+        }
+
+        int start = field.index(nest.getX(), nest.getY(), nest.getZ());
+        if (start < 0) {
+            return field;
+        }
+
+        int[] queue = new int[steps.length];
+        int head = 0;
+        int tail = 0;
+        steps[start] = ARRIVED;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int cell = queue[head++];
+            int z = cell % field.sizeZ;
+            int y = cell / field.sizeZ % field.sizeY;
+            int x = cell / field.sizeZ / field.sizeY;
+
+            for (int step = 0; step < STEP_X.length; step++) {
+                int nx = x + STEP_X[step];
+                int ny = y + STEP_Y[step];
+                int nz = z + STEP_Z[step];
+                if (nx < 0 || nx >= field.sizeX || ny < 0 || ny >= field.sizeY || nz < 0 || nz >= field.sizeZ) {
+                    continue;
+                }
+
+                int next = (nx * field.sizeY + ny) * field.sizeZ + nz;
+                if (steps[next] != UNREACHABLE) {
+                    continue;
+                }
+
+                // Walkable: open here with a solid floor
+                if (solid[(nx * layers + ny + 1) * field.sizeZ + nz] || !solid[(nx * layers + ny) * field.sizeZ + nz]) {
+                    continue;
+                }
+
+                // Climbing or dropping needs headroom above the lower of the two cells
+                if (STEP_Y[step] > 0 && solid[(x * layers + y + 2) * field.sizeZ + z]) {
+                    continue;
+                }
+                if (STEP_Y[step] < 0 && solid[(nx * layers + ny + 2) * field.sizeZ + nz]) {
+                    continue;
+                }
+
+                // The way back to the nest is the reverse of the step that reached this cell
+                steps[next] = (byte) (step ^ 1);
+                queue[tail++] = next;
+            }
+        }
+
+        return field;
+    }
+
+    /**
+     * Get the step towards the nest from a block
+     *
+     * @param x The block X coordinate
+     * @param y The block Y coordinate
+     * @param z The block Z coordinate
+     * @return The step, {@link #ARRIVED} at the nest, or -1 if the nest can't be reached from the block
+     */
+    public int step(int x, int y, int z) {
+        int index = index(x, y, z);
+        return index < 0 ? UNREACHABLE : steps[index];
+    }
+
+    /**
+     * Check if a block lies inside the box the field covers
+     *
+     * @param x The block X coordinate
+     * @param y The block Y coordinate
+     * @param z The block Z coordinate
+     * @return True if the field has a step for the block, even if it is unreachable
+     */
+    public boolean contains(int x, int y, int z) {
+        return index(x, y, z) >= 0;
+    }
+
+    public static int stepX(int step) {
+        return STEP_X[step];
+    }
+
+    public static int stepY(int step) {
+        return STEP_Y[step];
+    }
+
+    public static int stepZ(int step) {
+        return STEP_Z[step];
+    }
+
+    public Nest getNest() {
+        return nest;
+    }
+
+    /**
+     * Check if the field was built from blocks of a chunk
+     *
+     * @param worldId The world UID
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return True if the chunk overlaps the field
+     */
+    public boolean covers(UUID worldId, int chunkX, int chunkZ) {
+        return this.worldId.equals(worldId)
+                && chunkX >= minX >> 4 && chunkX <= (minX + sizeX - 1) >> 4
+                && chunkZ >= minZ >> 4 && chunkZ <= (minZ + sizeZ - 1) >> 4;
+    }
+
+    private int index(int x, int y, int z) {
+        int dx = x - minX;
+        int dy = y - minY;
+        int dz = z - minZ;
+        if (dx < 0 || dx >= sizeX || dy < 0 || dy >= sizeY || dz < 0 || dz >= sizeZ) {
+            return -1;
+        }
+        return (dx * sizeY + dy) * sizeZ + dz;
+    }
+}
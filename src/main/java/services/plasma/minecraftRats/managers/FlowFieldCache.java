@@ -0,0 +1,209 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.config.RatSettings;
+import services.plasma.minecraftRats.scheduler.RatScheduler;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-nest cache of flow fields. A missing field is built in the background:
+ * the chunks around the nest are snapshotted on the thread that owns them and
+ * the search runs async. Fields are dropped when a block in one of their
+ * chunks changes or the chunk unloads, and the whole cache is dropped when
+ * the settings change. Access is synchronized so region threads can share
+ * the cache.
+ */
+public class FlowFieldCache {
+
+    /**
+     * Largest horizontal reach of a field, whatever the wander distance
+     */
+    private static final int MAX_RADIUS = 32;
+
+    /**
+     * Vertical reach of a field above and below the nest
+     */
+    private static final int HEIGHT = 8;
+
+    private final MinecraftRats plugin;
+    private final Map<Integer, FlowField> fields;
+    private final Map<Integer, Build> pending;
+    private RatSettings settings;
+
+    public FlowFieldCache(MinecraftRats plugin) {
+        this.plugin = plugin;
+        this.fields = new HashMap<>();
+        this.pending = new HashMap<>();
+    }
+
+    /**
+     * Get the flow field of a nest, starting a build if there is none yet
+     *
+     * @param nest The nest
+     * @param current The current settings
+     * @return The field, or null while it is being built
+     */
+    public synchronized FlowField get(Nest nest, RatSettings current) {
+        if (settings != current) {
+            settings = current;
+            fields.clear();
+            pending.clear();
+        }
+
+        FlowField field = fields.get(nest.getId());
+        if (field != null && field.getNest() == nest) {
+            return field;
+        }
+
+        if (!pending.containsKey(nest.getId())) {
+            int radius = Math.max(1, Math.min(MAX_RADIUS, current.getWanderDistance()));
+            Build build = new Build(nest, radius);
+            pending.put(nest.getId(), build);
+            schedule(build);
+        }
+        return null;
+    }
+
+    /**
+     * Drop the fields that cover a chunk and cancel any build in flight over it
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     */
+    public synchronized void invalidate(World world, int chunkX, int chunkZ) {
+        UUID worldId = world.getUID();
+
+        Iterator<FlowField> fieldIterator = fields.values().iterator();
+        while (fieldIterator.hasNext()) {
+            if (fieldIterator.next().covers(worldId, chunkX, chunkZ)) {
+                fieldIterator.remove();
+            }
+        }
+
+        Iterator<Build> buildIterator = pending.values().iterator();
+        while (buildIterator.hasNext()) {
+            if (buildIterator.next().covers(worldId, chunkX, chunkZ)) {
+                buildIterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drop the field of a removed nest and cancel any build in flight for it
+     *
+     * @param nest The nest
+     */
+    public synchronized void remove(Nest nest) {
+        FlowField field = fields.get(nest.getId());
+        if (field != null && field.getNest() == nest) {
+            fields.remove(nest.getId());
+        }
+
+        Build build = pending.get(nest.getId());
+        if (build != null && build.nest == nest) {
+            pending.remove(nest.getId());
+        }
+    }
+
+    /**
+     * Drop every field
+     */
+    public synchronized void clear() {
+        fields.clear();
+        pending.clear();
+    }
+
+    /**
+     * Get the number of cached fields
+     *
+     * @return The number of cached fields
+     */
+    public synchronized int size() {
+        return fields.size();
+    }
+
+    private void schedule(Build build) {
+        Location location = build.nest.toLocation();
+        if (location == null) {
+            pending.remove(build.nest.getId());
+            return;
+        }
+
+        // Snapshots are taken on a later tick, never inside a rat's behavior visit
+        RatScheduler scheduler = plugin.getScheduler();
+        if (scheduler.isRegionized()) {
+            scheduler.runAt(location, () -> snapshot(build, location.getWorld()));
+        } else {
+            scheduler.run(() -> snapshot(build, location.getWorld()));
+        }
+    }
+
+    private void snapshot(Build build, World world) {
+        synchronized (this) {
+            if (pending.get(build.nest.getId()) != build) {
+                return;
+            }
+        }
+
+        Map<Long, ChunkSnapshot> snapshots = new HashMap<>();
+        for (int chunkX = build.minChunkX; chunkX <= build.maxChunkX; chunkX++) {
+            for (int chunkZ = build.minChunkZ; chunkZ <= build.maxChunkZ; chunkZ++) {
+                if (world.isChunkLoaded(chunkX, chunkZ)) {
+                    snapshots.put(RatRegistry.chunkKey(chunkX, chunkZ),
+                            world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false));
+                }
+            }
+        }
+
+        int minHeight = world.getMinHeight();
+        int maxHeight = world.getMaxHeight();
+        plugin.getScheduler().runAsync(() -> {
+            FlowField field = FlowField.compute(build.nest, build.radius, HEIGHT, minHeight, maxHeight, snapshots);
+            store(build, field);
+        });
+    }
+
+    private synchronized void store(Build build, FlowField field) {
+        // A block change or settings change while the search ran makes it stale
+        if (pending.get(build.nest.getId()) != build) {
+            return;
+        }
+        pending.remove(build.nest.getId());
+        fields.put(build.nest.getId(), field);
+    }
+
+    /**
+     * A field being built, and the chunks it reads
+     */
+    private static class Build {
+        private final Nest nest;
+        private final int radius;
+        private final int minChunkX;
+        private final int maxChunkX;
+        private final int minChunkZ;
+        private final int maxChunkZ;
+
+        private Build(Nest nest, int radius) {
+            this.nest = nest;
+            this.radius = radius;
+            this.minChunkX = (nest.getX() - radius) >> 4;
+            this.maxChunkX = (nest.getX() + radius) >> 4;
+            this.minChunkZ = (nest.getZ() - radius) >> 4;
+            this.maxChunkZ = (nest.getZ() + radius) >> 4;
+        }
+
+        private boolean covers(UUID worldId, int chunkX, int chunkZ) {
+            return nest.getWorldId().equals(worldId)
+                    && chunkX >= minChunkX && chunkX <= maxChunkX
+                    && chunkZ >= minChunkZ && chunkZ <= maxChunkZ;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package services.plasma.minecraftRats.managers;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of ints with linear probing and backward-shift
+ * deletion. Membership tests don't box and touch a single int array.
+ */
+final class IntHashSet {
+
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private int mask;
+    private int size;
+    private boolean hasEmptyKey;
+
+    IntHashSet() {
+        this.keys = new int[64];
+        this.mask = keys.length - 1;
+    }
+
+    boolean add(int key) {
+        if (key == EMPTY) {
+            boolean added = !hasEmptyKey;
+            hasEmptyKey = true;
+            return added;
+        }
+
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        size++;
+        if (size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        return true;
+    }
+
+    boolean contains(int key) {
+        if (key == EMPTY) {
+            return hasEmptyKey;
+        }
+
+        int slot = mix(key) & mask;
+        int current;
+        while ((current = keys[slot]) != EMPTY) {
+            if (current == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    boolean remove(int key) {
+        if (key == EMPTY) {
+            boolean removed = hasEmptyKey;
+            hasEmptyKey = false;
+            return removed;
+        }
+
+        int slot = mix(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Shift later entries of the probe chain back so lookups never need tombstones
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size + (hasEmptyKey ? 1 : 0);
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hasEmptyKey = false;
+    }
+
+    private void resize(int capacity) {
+        int[] old = keys;
+        keys = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+
+        for (int key : old) {
+            if (key != EMPTY) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                size++;
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        // Entity ids are sequential, so spread them before masking
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,129 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.UUID;
+
+/**
+ * A rat nest, stored by world UID and block coordinates so it never pins a World.
+ * Besides the rats that exist as entities, a nest holds a virtual population
+ * that grows while its chunk is unloaded and turns into rats when it loads.
+ */
+public class Nest {
+
+    private final int id;
+    private final UUID worldId;
+    private final int x;
+    private final int y;
+    private final int z;
+    private int population;
+    private double virtualPopulation;
+    private long lastUpdate;
+
+    public Nest(int id, UUID worldId, int x, int y, int z, int population) {
+        this(id, worldId, x, y, z, population, 0.0, System.currentTimeMillis());
+    }
+
+    public Nest(int id, UUID worldId, int x, int y, int z, int population, double virtualPopulation, long lastUpdate) {
+        this.id = id;
+        this.worldId = worldId;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.population = population;
+        this.virtualPopulation = virtualPopulation;
+        this.lastUpdate = lastUpdate;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public UUID getWorldId() {
+        return worldId;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public int getPopulation() {
+        return population;
+    }
+
+    void setPopulation(int population) {
+        this.population = Math.max(0, population);
+    }
+
+    public double getVirtualPopulation() {
+        return virtualPopulation;
+    }
+
+    void setVirtualPopulation(double virtualPopulation) {
+        this.virtualPopulation = Math.max(0.0, virtualPopulation);
+    }
+
+    public long getLastUpdate() {
+        return lastUpdate;
+    }
+
+    void setLastUpdate(long lastUpdate) {
+        this.lastUpdate = lastUpdate;
+    }
+
+    /**
+     * Work out the virtual population after some time has passed. The whole
+     * nest follows logistic growth towards its capacity, so a small nest grows
+     * slowly, a mid-sized one quickly, and one above capacity shrinks back.
+     *
+     * @param now The current time in milliseconds
+     * @param capacity The population the nest levels off at
+     * @param ratePerHour The logistic growth rate per hour
+     * @return The virtual population at the given time
+     */
+    public double projectVirtualPopulation(long now, int capacity, double ratePerHour) {
+        double total = population + virtualPopulation;
+        double hours = Math.max(0L, now - lastUpdate) / 3_600_000.0;
+        if (total <= 0 || hours <= 0) {
+            return virtualPopulation;
+        }
+
+        double grown = capacity / (1.0 + (capacity - total) / total * Math.exp(-ratePerHour * hours));
+        return Math.max(0.0, grown - population);
+    }
+
+    /**
+     * Get the squared distance from the centre of the nest block to a position
+     *
+     * @param px The X coordinate
+     * @param py The Y coordinate
+     * @param pz The Z coordinate
+     * @return The squared distance
+     */
+    public double distanceSquared(double px, double py, double pz) {
+        double dx = x + 0.5 - px;
+        double dy = y - py;
+        double dz = z + 0.5 - pz;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Build a location for the nest
+     *
+     * @return The nest location, or null if its world is not loaded
+     */
+    public Location toLocation() {
+        World world = Bukkit.getWorld(worldId);
+        return world == null ? null : new Location(world, x + 0.5, y, z + 0.5);
+    }
+}
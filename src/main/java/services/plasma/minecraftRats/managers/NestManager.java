@@ -0,0 +1,524 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.scheduler.RatTask;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Durable store of rat nests, indexed by world and 64-block region.
+ * Changes are written behind to nests.dat in batches off the main thread.
+ * Nests in unloaded chunks keep a virtual population that is only
+ * brought up to date, and materialized, when the chunk loads again.
+ * Access is synchronized so region threads can share the store.
+ */
+public class NestManager {
+
+    private static final int FILE_MAGIC = 0x5241544E;
+    private static final int FILE_VERSION = 2;
+    private static final int REGION_SHIFT = 6;
+    private static final long FLUSH_INTERVAL = 200L;
+
+    private final MinecraftRats plugin;
+    private final File file;
+    private final Object ioLock;
+    private final Map<Integer, Nest> nests;
+    private final Map<UUID, WorldNests> worlds;
+    private int nextId;
+    private boolean dirty;
+    private RatTask flushTask;
+
+    public NestManager(MinecraftRats plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "nests.dat");
+        this.ioLock = new Object();
+        this.nests = new HashMap<>();
+        this.worlds = new HashMap<>();
+        this.nextId = 1;
+    }
+
+    /**
+     * Load the nests from disk and start the write-behind task
+     */
+    public void start() {
+        load();
+
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+        flushTask = plugin.getScheduler().runTimer(this::flushAsync, FLUSH_INTERVAL, FLUSH_INTERVAL);
+    }
+
+    /**
+     * Stop the write-behind task and write any pending changes
+     */
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+
+        byte[] data = null;
+        synchronized (this) {
+            if (dirty) {
+                dirty = false;
+                data = serialize();
+            }
+        }
+        if (data != null) {
+            write(data);
+        }
+    }
+
+    /**
+     * Create a nest at a location
+     *
+     * @param location The location of the nest
+     * @param maxPerWorld The maximum number of nests in the world
+     * @return The new nest, or null if the world already has the maximum number of nests
+     */
+    public synchronized Nest create(Location location, int maxPerWorld) {
+        World world = location.getWorld();
+        if (world == null || count(world) >= maxPerWorld) {
+            return null;
+        }
+
+        Nest nest = new Nest(nextId++, world.getUID(),
+                location.getBlockX(), location.getBlockY(), location.getBlockZ(), 0);
+        add(nest);
+        dirty = true;
+
+        return nest;
+    }
+
+    /**
+     * Remove a nest
+     *
+     * @param nest The nest to remove
+     */
+    public synchronized void remove(Nest nest) {
+        if (nests.remove(nest.getId()) == null) {
+            return;
+        }
+
+        WorldNests index = worlds.get(nest.getWorldId());
+        if (index != null) {
+            index.remove(nest);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Remove every nest in a world that matches a filter
+     *
+     * @param world The world
+     * @param filter The filter
+     * @return The removed nests
+     */
+    public synchronized List<Nest> removeIf(World world, Predicate<Nest> filter) {
+        List<Nest> matches = new ArrayList<>();
+        forEach(world, nest -> {
+            if (filter.test(nest)) {
+                matches.add(nest);
+            }
+        });
+
+        for (Nest nest : matches) {
+            remove(nest);
+        }
+        return matches;
+    }
+
+    /**
+     * Remove every nest
+     */
+    public synchronized void clear() {
+        nests.clear();
+        worlds.clear();
+        dirty = true;
+    }
+
+    /**
+     * Get a nest by its id
+     *
+     * @param id The nest id
+     * @return The nest, or null if it does not exist
+     */
+    public synchronized Nest get(int id) {
+        return nests.get(id);
+    }
+
+    /**
+     * Get the total number of nests
+     *
+     * @return The number of nests
+     */
+    public synchronized int size() {
+        return nests.size();
+    }
+
+    /**
+     * Get the virtual population of every nest combined
+     *
+     * @return The number of virtual rats, rounded down
+     */
+    public synchronized int getVirtualPopulation() {
+        double total = 0.0;
+        for (Nest nest : nests.values()) {
+            total += nest.getVirtualPopulation();
+        }
+        return (int) total;
+    }
+
+    /**
+     * Get the number of nests in a world
+     *
+     * @param world The world
+     * @return The number of nests
+     */
+    public synchronized int count(World world) {
+        WorldNests index = worlds.get(world.getUID());
+        return index == null ? 0 : index.count;
+    }
+
+    /**
+     * Change the number of rats that belong to a nest
+     *
+     * @param nest The nest
+     * @param delta The change in population
+     */
+    public synchronized void adjustPopulation(Nest nest, int delta) {
+        nest.setPopulation(nest.getPopulation() + delta);
+        dirty = true;
+    }
+
+    /**
+     * Bring the virtual population of a nest up to date
+     *
+     * @param nest The nest
+     * @param now The current time in milliseconds
+     * @param capacity The population the nest levels off at
+     * @param ratePerHour The logistic growth rate per hour
+     */
+    public synchronized void grow(Nest nest, long now, int capacity, double ratePerHour) {
+        nest.setVirtualPopulation(nest.projectVirtualPopulation(now, capacity, ratePerHour));
+        nest.setLastUpdate(now);
+        dirty = true;
+    }
+
+    /**
+     * Restart the growth clock of a nest without growing it, e.g. while its chunk was loaded
+     *
+     * @param nest The nest
+     * @param now The current time in milliseconds
+     */
+    public synchronized void touch(Nest nest, long now) {
+        nest.setLastUpdate(now);
+        dirty = true;
+    }
+
+    /**
+     * Change the virtual population of a nest
+     *
+     * @param nest The nest
+     * @param delta The change in virtual population
+     */
+    public synchronized void adjustVirtualPopulation(Nest nest, double delta) {
+        nest.setVirtualPopulation(nest.getVirtualPopulation() + delta);
+        dirty = true;
+    }
+
+    /**
+     * Get the nests inside a chunk
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The nests in the chunk, empty if there are none
+     */
+    public synchronized List<Nest> inChunk(World world, int chunkX, int chunkZ) {
+        WorldNests index = worlds.get(world.getUID());
+        if (index == null) {
+            return Collections.emptyList();
+        }
+
+        List<Nest> region = index.regions.get(RatRegistry.chunkKey(chunkX >> (REGION_SHIFT - 4), chunkZ >> (REGION_SHIFT - 4)));
+        if (region == null) {
+            return Collections.emptyList();
+        }
+
+        List<Nest> matches = null;
+        for (int i = 0, size = region.size(); i < size; i++) {
+            Nest nest = region.get(i);
+            if (nest.getX() >> 4 == chunkX && nest.getZ() >> 4 == chunkZ) {
+                if (matches == null) {
+                    matches = new ArrayList<>(2);
+                }
+                matches.add(nest);
+            }
+        }
+        return matches == null ? Collections.<Nest>emptyList() : matches;
+    }
+
+    /**
+     * Find the nearest nest within a distance of a position
+     *
+     * @param world The world
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param maxDistance The maximum distance
+     * @return The nearest nest, or null if there is none in range
+     */
+    public synchronized Nest nearest(World world, double x, double y, double z, double maxDistance) {
+        WorldNests index = worlds.get(world.getUID());
+        if (index == null) {
+            return null;
+        }
+
+        int minX = (int) Math.floor(x - maxDistance) >> REGION_SHIFT;
+        int maxX = (int) Math.floor(x + maxDistance) >> REGION_SHIFT;
+        int minZ = (int) Math.floor(z - maxDistance) >> REGION_SHIFT;
+        int maxZ = (int) Math.floor(z + maxDistance) >> REGION_SHIFT;
+
+        Nest best = null;
+        double bestDistance = maxDistance * maxDistance;
+
+        for (int rx = minX; rx <= maxX; rx++) {
+            for (int rz = minZ; rz <= maxZ; rz++) {
+                List<Nest> region = index.regions.get(RatRegistry.chunkKey(rx, rz));
+                if (region == null) {
+                    continue;
+                }
+
+                for (int i = 0, size = region.size(); i < size; i++) {
+                    Nest nest = region.get(i);
+                    double distance = nest.distanceSquared(x, y, z);
+                    if (distance <= bestDistance) {
+                        bestDistance = distance;
+                        best = nest;
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Get the nests within a horizontal distance of a position
+     *
+     * @param world The world
+     * @param x The X coordinate
+     * @param z The Z coordinate
+     * @param radius The maximum horizontal distance
+     * @return The nests in range, empty if there are none
+     */
+    public synchronized List<Nest> within(World world, double x, double z, double radius) {
+        WorldNests index = worlds.get(world.getUID());
+        if (index == null) {
+            return Collections.emptyList();
+        }
+
+        int minX = (int) Math.floor(x - radius) >> REGION_SHIFT;
+        int maxX = (int) Math.floor(x + radius) >> REGION_SHIFT;
+        int minZ = (int) Math.floor(z - radius) >> REGION_SHIFT;
+        int maxZ = (int) Math.floor(z + radius) >> REGION_SHIFT;
+        double radiusSquared = radius * radius;
+
+        List<Nest> matches = null;
+        for (int rx = minX; rx <= maxX; rx++) {
+            for (int rz = minZ; rz <= maxZ; rz++) {
+                List<Nest> region = index.regions.get(RatRegistry.chunkKey(rx, rz));
+                if (region == null) {
+                    continue;
+                }
+
+                for (int i = 0, size = region.size(); i < size; i++) {
+                    Nest nest = region.get(i);
+                    double dx = nest.getX() + 0.5 - x;
+                    double dz = nest.getZ() + 0.5 - z;
+                    if (dx * dx + dz * dz <= radiusSquared) {
+                        if (matches == null) {
+                            matches = new ArrayList<>(4);
+                        }
+                        matches.add(nest);
+                    }
+                }
+            }
+        }
+        return matches == null ? Collections.<Nest>emptyList() : matches;
+    }
+
+    /**
+     * Run an action for every nest in a world
+     *
+     * @param world The world
+     * @param action The action to run
+     */
+    public synchronized void forEach(World world, Consumer<Nest> action) {
+        WorldNests index = worlds.get(world.getUID());
+        if (index == null) {
+            return;
+        }
+
+        for (List<Nest> region : index.regions.values()) {
+            for (int i = 0, size = region.size(); i < size; i++) {
+                action.accept(region.get(i));
+            }
+        }
+    }
+
+    private void add(Nest nest) {
+        nests.put(nest.getId(), nest);
+
+        WorldNests index = worlds.get(nest.getWorldId());
+        if (index == null) {
+            index = new WorldNests();
+            worlds.put(nest.getWorldId(), index);
+        }
+        index.add(nest);
+    }
+
+    private void flushAsync() {
+        final byte[] data;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+
+            // Snapshot under the lock, write on an async thread
+            data = serialize();
+        }
+        plugin.getScheduler().runAsync(() -> write(data));
+    }
+
+    private byte[] serialize() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + nests.size() * 52);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(nextId);
+            out.writeInt(nests.size());
+
+            for (Nest nest : nests.values()) {
+                out.writeInt(nest.getId());
+                out.writeLong(nest.getWorldId().getMostSignificantBits());
+                out.writeLong(nest.getWorldId().getLeastSignificantBits());
+                out.writeInt(nest.getX());
+                out.writeInt(nest.getY());
+                out.writeInt(nest.getZ());
+                out.writeInt(nest.getPopulation());
+                out.writeDouble(nest.getVirtualPopulation());
+                out.writeLong(nest.getLastUpdate());
+            }
+        } catch (IOException e) {
+            // Writing to a byte array cannot fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void write(byte[] data) {
+        synchronized (ioLock) {
+            File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try {
+                if (!file.getParentFile().exists()) {
+                    file.getParentFile().mkdirs();
+                }
+                Files.write(temp.toPath(), data);
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not save nests: " + e.getMessage());
+            }
+        }
+    }
+
+    private void load() {
+        nests.clear();
+        worlds.clear();
+        nextId = 1;
+
+        if (!file.exists()) {
+            return;
+        }
+
+        synchronized (ioLock) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                int version = in.readInt() == FILE_MAGIC ? in.readInt() : -1;
+                if (version < 1 || version > FILE_VERSION) {
+                    plugin.getLogger().warning("Ignoring nests.dat with an unknown format");
+                    return;
+                }
+
+                long now = System.currentTimeMillis();
+                nextId = in.readInt();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    int id = in.readInt();
+                    UUID worldId = new UUID(in.readLong(), in.readLong());
+                    int x = in.readInt();
+                    int y = in.readInt();
+                    int z = in.readInt();
+                    int population = in.readInt();
+
+                    // Version 1 files have no virtual population yet
+                    double virtualPopulation = version >= 2 ? in.readDouble() : 0.0;
+                    long lastUpdate = version >= 2 ? in.readLong() : now;
+                    Nest nest = new Nest(id, worldId, x, y, z, population, virtualPopulation, lastUpdate);
+                    add(nest);
+                    nextId = Math.max(nextId, id + 1);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not load nests: " + e.getMessage());
+            }
+        }
+
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("Loaded " + nests.size() + " rat nests");
+        }
+    }
+
+    /**
+     * Per-world nest count and region buckets
+     */
+    private static class WorldNests {
+        private final Map<Long, List<Nest>> regions = new HashMap<>();
+        private int count;
+
+        private void add(Nest nest) {
+            long key = RatRegistry.chunkKey(nest.getX() >> REGION_SHIFT, nest.getZ() >> REGION_SHIFT);
+            List<Nest> region = regions.get(key);
+            if (region == null) {
+                region = new ArrayList<>(2);
+                regions.put(key, region);
+            }
+            region.add(nest);
+            count++;
+        }
+
+        private void remove(Nest nest) {
+            long key = RatRegistry.chunkKey(nest.getX() >> REGION_SHIFT, nest.getZ() >> REGION_SHIFT);
+            List<Nest> region = regions.get(key);
+            if (region != null && region.remove(nest)) {
+                count--;
+                if (region.isEmpty()) {
+                    regions.remove(key);
+                }
+            }
+        }
+    }
+}
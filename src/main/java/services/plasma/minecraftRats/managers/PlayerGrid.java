@@ -0,0 +1,126 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shared grid of player positions in 32-block columns, rebuilt a few times
+ * per second. Proximity queries look at the cells around a position instead
+ * of every online player. Each refresh builds a new grid and swaps it in, so
+ * region threads can query while it is rebuilt.
+ */
+public class PlayerGrid {
+
+    private static final int CELL_SHIFT = 5;
+
+    private final Location scratch;
+    private volatile Map<UUID, Map<Long, Cell>> worlds;
+
+    public PlayerGrid() {
+        this.scratch = new Location(null, 0, 0, 0);
+        this.worlds = new HashMap<>();
+    }
+
+    /**
+     * Rebuild the grid from the online players
+     */
+    public void refresh() {
+        Map<UUID, Map<Long, Cell>> rebuilt = new HashMap<>();
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (player.isDead()) {
+                continue;
+            }
+
+            player.getLocation(scratch);
+            UUID worldId = scratch.getWorld().getUID();
+            Map<Long, Cell> cells = rebuilt.get(worldId);
+            if (cells == null) {
+                cells = new HashMap<>();
+                rebuilt.put(worldId, cells);
+            }
+
+            long key = RatRegistry.chunkKey((int) Math.floor(scratch.getX()) >> CELL_SHIFT,
+                    (int) Math.floor(scratch.getZ()) >> CELL_SHIFT);
+            Cell cell = cells.get(key);
+            if (cell == null) {
+                cell = new Cell();
+                cells.put(key, cell);
+            }
+            cell.add(scratch.getX(), scratch.getY(), scratch.getZ());
+        }
+
+        worlds = rebuilt;
+    }
+
+    /**
+     * Check if any player is within a distance of a position
+     *
+     * @param world The world
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param distance The distance in blocks
+     * @return True if a player is within the distance
+     */
+    public boolean isPlayerNear(World world, double x, double y, double z, double distance) {
+        Map<Long, Cell> cells = worlds.get(world.getUID());
+        if (cells == null || cells.isEmpty()) {
+            return false;
+        }
+
+        int minX = (int) Math.floor(x - distance) >> CELL_SHIFT;
+        int maxX = (int) Math.floor(x + distance) >> CELL_SHIFT;
+        int minZ = (int) Math.floor(z - distance) >> CELL_SHIFT;
+        int maxZ = (int) Math.floor(z + distance) >> CELL_SHIFT;
+        double distanceSquared = distance * distance;
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                Cell cell = cells.get(RatRegistry.chunkKey(cx, cz));
+                if (cell != null && cell.anyWithin(x, y, z, distanceSquared)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Player positions in one column, stored flat as x, y, z triples
+     */
+    private static class Cell {
+        private double[] positions = new double[12];
+        private int size;
+
+        private void add(double x, double y, double z) {
+            if ((size + 1) * 3 > positions.length) {
+                positions = Arrays.copyOf(positions, positions.length * 2);
+            }
+            int offset = size * 3;
+            positions[offset] = x;
+            positions[offset + 1] = y;
+            positions[offset + 2] = z;
+            size++;
+        }
+
+        private boolean anyWithin(double x, double y, double z, double distanceSquared) {
+            for (int i = 0, end = size * 3; i < end; i += 3) {
+                double dx = positions[i] - x;
+                double dy = positions[i + 1] - y;
+                double dz = positions[i + 2] - z;
+                if (dx * dx + dy * dy + dz * dz <= distanceSquared) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.Location;
+import org.bukkit.entity.LivingEntity;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.config.RatSettings;
+import services.plasma.minecraftRats.entities.RatEntity;
+import services.plasma.minecraftRats.metrics.RatMetrics;
+import services.plasma.minecraftRats.scheduler.RatScheduler;
+import services.plasma.minecraftRats.scheduler.RatTask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs rat behavior round-robin over the registry under a per-tick time budget.
+ * The cursor carries over between ticks, so a large population is spread over
+ * several ticks instead of being processed all at once. Rats far from every
+ * player hibernate: their AI is switched off and their behavior is skipped
+ * until a player comes close again. Rat names are likewise only shown while
+ * a player is near. On a region-threaded server each visit
+ * is sent to the thread that owns the rat instead of running inline.
+ */
+public class RatBehaviorScheduler {
+
+    private final MinecraftRats plugin;
+    private final RatRegistry registry;
+    private final SpatialIndex spatialIndex;
+    private final PlayerGrid playerGrid;
+    private final Location scratch;
+    private RatTask task;
+
+    private int cursor;
+    private int visitedThisPass;
+    private long passStartTick;
+    private long currentTick;
+    private long gridRefreshTick;
+
+    private long lastPassTicks;
+    private int lastTickVisits;
+    private long lastTickNanos;
+    private long budgetExhaustedTicks;
+
+    /**
+     * Extra distance an awake rat needs before it hibernates, so rats at the edge do not flip every pass
+     */
+    private static final double HIBERNATION_MARGIN = 8.0;
+
+    /**
+     * Extra distance a shown name stays visible for, so names at the edge do not flicker
+     */
+    private static final double NAMEPLATE_MARGIN = 4.0;
+
+    public RatBehaviorScheduler(MinecraftRats plugin, RatRegistry registry, SpatialIndex spatialIndex) {
+        this.plugin = plugin;
+        this.registry = registry;
+        this.spatialIndex = spatialIndex;
+        this.playerGrid = new PlayerGrid();
+        this.scratch = new Location(null, 0, 0, 0);
+    }
+
+    /**
+     * Start the behavior task
+     */
+    public void start() {
+        if (task != null) {
+            task.cancel();
+        }
+
+        // The first tick refreshes the grid, so no rat reads it empty
+        gridRefreshTick = Long.MIN_VALUE;
+        task = plugin.getScheduler().runTimer(this::tick, 1L, 1L);
+    }
+
+    /**
+     * Stop the behavior task
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void tick() {
+        currentTick++;
+        spatialIndex.invalidate();
+
+        RatSettings settings = plugin.getConfigManager().getSettings();
+        // A grid left stale while both features were off is refreshed as soon as one is turned on
+        if ((settings.isHibernationEnabled() || settings.isNameplateLodEnabled())
+                && (gridRefreshTick == Long.MIN_VALUE
+                || currentTick - gridRefreshTick >= settings.getPlayerGridInterval())) {
+            playerGrid.refresh();
+            gridRefreshTick = currentTick;
+        }
+
+        int population = registry.size();
+        if (population == 0) {
+            lastTickVisits = 0;
+            lastTickNanos = 0;
+            return;
+        }
+
+        // Spread one full pass over the configured interval, but never exceed the time budget
+        int interval = settings.getBehaviorInterval();
+        int quota = (population + interval - 1) / interval;
+        long budget = settings.getBehaviorBudgetNanos();
+
+        if (plugin.getScheduler().isRegionized()) {
+            dispatch(quota, settings);
+            return;
+        }
+
+        RatMetrics metrics = plugin.getMetrics();
+        long start = System.nanoTime();
+        long now = start;
+        int visits = 0;
+
+        while (visits < quota && registry.size() > 0) {
+            if (cursor >= registry.size()) {
+                completePass(settings);
+            }
+
+            LivingEntity rat = registry.get(cursor);
+            if (!rat.isValid()) {
+                // Swap-remove moves another rat into this slot, so do not advance
+                plugin.getRatManager().unregisterRat(rat);
+                continue;
+            }
+
+            registry.reindex(rat);
+            Location location = rat.getLocation(scratch);
+            updateNameplate(rat, location, settings);
+            if (!updateHibernation(rat, location, settings)) {
+                RatEntity.applyRatBehavior(rat);
+            }
+
+            // One clock read per visit serves both the histogram and the budget
+            long end = System.nanoTime();
+            metrics.getRatBehavior().record(end - now);
+            now = end;
+
+            cursor++;
+            visitedThisPass++;
+            visits++;
+
+            if (now - start >= budget) {
+                if (visits < quota) {
+                    budgetExhaustedTicks++;
+                }
+                break;
+            }
+        }
+
+        lastTickVisits = visits;
+        lastTickNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Hand this tick's share of rats to the threads that own them. Those threads
+     * run in parallel, so the time budget does not apply, only the quota.
+     *
+     * @param quota The number of rats to visit
+     * @param settings The current settings
+     */
+    private void dispatch(int quota, RatSettings settings) {
+        long start = System.nanoTime();
+        List<LivingEntity> batch = new ArrayList<>(quota);
+
+        // Hold the registry lock so region threads can't shift the dense array under the cursor
+        synchronized (registry) {
+            while (batch.size() < quota && registry.size() > 0) {
+                if (cursor >= registry.size()) {
+                    completePass(settings);
+                }
+                batch.add(registry.get(cursor));
+                cursor++;
+                visitedThisPass++;
+            }
+        }
+
+        RatScheduler scheduler = plugin.getScheduler();
+        for (LivingEntity rat : batch) {
+            scheduler.runFor(rat, () -> visit(rat, settings), () -> plugin.getRatManager().unregisterRat(rat));
+        }
+
+        lastTickVisits = batch.size();
+        lastTickNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Visit one rat on the thread that owns it
+     *
+     * @param rat The rat
+     * @param settings The settings at the time the visit was dispatched
+     */
+    private void visit(LivingEntity rat, RatSettings settings) {
+        long start = System.nanoTime();
+        registry.reindex(rat);
+        Location location = rat.getLocation();
+        updateNameplate(rat, location, settings);
+        if (!updateHibernation(rat, location, settings)) {
+            RatEntity.applyRatBehavior(rat);
+        }
+        plugin.getMetrics().getRatBehavior().recordSince(start);
+    }
+
+    /**
+     * Put a rat to sleep or wake it up depending on how close the nearest player is
+     *
+     * @param rat The rat
+     * @param location The current location of the rat
+     * @param settings The current settings
+     * @return True if the rat is hibernating and its behavior should be skipped
+     */
+    private boolean updateHibernation(LivingEntity rat, Location location, RatSettings settings) {
+        boolean hibernating = registry.isHibernating(rat);
+        boolean sleep = false;
+
+        if (settings.isHibernationEnabled()) {
+            double distance = settings.getHibernationDistance() + (hibernating ? 0.0 : HIBERNATION_MARGIN);
+            sleep = !playerGrid.isPlayerNear(location.getWorld(), location.getX(), location.getY(), location.getZ(), distance);
+        }
+
+        if (sleep != hibernating) {
+            setHibernating(rat, sleep, settings.isHibernationSilent());
+            registry.setHibernating(rat, sleep);
+        }
+        return sleep;
+    }
+
+    /**
+     * Show a rat's name only while a player is close enough to read it. The
+     * flag is only written when it changes, so distant rats send no metadata.
+     *
+     * @param rat The rat
+     * @param location The current location of the rat
+     * @param settings The current settings
+     */
+    private void updateNameplate(LivingEntity rat, Location location, RatSettings settings) {
+        boolean shown = rat.isCustomNameVisible();
+        boolean show = true;
+
+        if (settings.isNameplateLodEnabled()) {
+            double distance = settings.getNameplateDistance() + (shown ? NAMEPLATE_MARGIN : 0.0);
+            show = playerGrid.isPlayerNear(location.getWorld(), location.getX(), location.getY(), location.getZ(), distance);
+        }
+
+        if (show != shown) {
+            rat.setCustomNameVisible(show);
+        }
+    }
+
+    private static void setHibernating(LivingEntity rat, boolean hibernating, boolean silent) {
+        rat.setAI(!hibernating);
+        if (silent || !hibernating) {
+            rat.setSilent(hibernating);
+        }
+    }
+
+    /**
+     * Wake every hibernating rat, so no rat is left frozen while the plugin is not running
+     */
+    public void wakeAll() {
+        // A disabling plugin can't schedule onto other regions; rats left asleep
+        // there are recognised by their missing AI on the next start
+        if (plugin.getScheduler().isRegionized()) {
+            return;
+        }
+
+        for (LivingEntity rat : registry.snapshot()) {
+            if (registry.isHibernating(rat)) {
+                if (rat.isValid()) {
+                    setHibernating(rat, false, true);
+                }
+                registry.setHibernating(rat, false);
+            }
+        }
+    }
+
+    private void completePass(RatSettings settings) {
+        lastPassTicks = currentTick - passStartTick;
+        passStartTick = currentTick;
+        cursor = 0;
+        visitedThisPass = 0;
+
+        if (settings.isDebug() && lastPassTicks > settings.getBehaviorInterval()) {
+            plugin.getLogger().info("Rat behavior pass took " + lastPassTicks + " ticks (target "
+                    + settings.getBehaviorInterval() + ", " + registry.size() + " rats)");
+        }
+    }
+
+    /**
+     * Get how many ticks the last complete pass over all rats took
+     *
+     * @return The length of the last pass in ticks
+     */
+    public long getLastPassTicks() {
+        return lastPassTicks;
+    }
+
+    /**
+     * Get how many ticks the scheduler is running behind its target interval.
+     * This takes the unfinished current pass into account.
+     *
+     * @return The number of ticks behind, or 0 if on schedule
+     */
+    public long getTicksBehind() {
+        int interval = plugin.getConfigManager().getSettings().getBehaviorInterval();
+        long current = currentTick - passStartTick;
+        int remaining = Math.max(0, registry.size() - cursor);
+        long projected = current + (lastTickVisits == 0 ? 0 : (remaining + lastTickVisits - 1) / lastTickVisits);
+        return Math.max(0, Math.max(lastPassTicks, projected) - interval);
+    }
+
+    /**
+     * Get the number of rats visited in the current, unfinished pass
+     *
+     * @return The number of rats visited so far
+     */
+    public int getVisitedThisPass() {
+        return visitedThisPass;
+    }
+
+    /**
+     * Get the number of rats visited in the last tick
+     *
+     * @return The number of visits
+     */
+    public int getLastTickVisits() {
+        return lastTickVisits;
+    }
+
+    /**
+     * Get the time spent in the last tick
+     *
+     * @return The time in nanoseconds
+     */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    /**
+     * Get the number of ticks that ran out of budget before finishing their quota
+     *
+     * @return The number of budget-limited ticks
+     */
+    public long getBudgetExhaustedTicks() {
+        return budgetExhaustedTicks;
+    }
+}
@@ -2,6 +2,7 @@ package services.plasma.minecraftRats.managers;
 
 import com.cryptomorin.xseries.XMaterial;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
@@ -11,40 +12,71 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
+import org.bukkit.entity.Silverfish;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.metadata.FixedMetadataValue;
-import org.bukkit.scheduler.BukkitTask;
 import services.plasma.minecraftRats.MinecraftRats;
 import services.plasma.minecraftRats.config.ConfigManager;
+import services.plasma.minecraftRats.config.RatSettings;
+import services.plasma.minecraftRats.entities.RatData;
+import services.plasma.minecraftRats.metrics.RatMetrics;
+import services.plasma.minecraftRats.scheduler.RatScheduler;
+import services.plasma.minecraftRats.scheduler.RatTask;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class RatManager {
 
+    private static final int SPAWN_RING = 2;
+    private static final int SPAWN_CHECK_PERIOD = 20;
+
     private final MinecraftRats plugin;
     private final ConfigManager configManager;
-    private final List<UUID> activeRats;
-    private final Map<UUID, Location> ratNests;
-    private BukkitTask spawningTask;
+    private final RatRegistry registry;
+    private final SpatialIndex spatialIndex;
+    private final RatBehaviorScheduler behaviorScheduler;
+    private final SpawnPlanner spawnPlanner;
+    private final SpawnCellCache spawnCellCache;
+    private final FlowFieldCache flowFields;
+    private final NestManager nestManager;
+    private final SpawnQueue spawnQueue;
+    private final RatRemovalQueue removalQueue;
+    private final RatSoundAggregator soundAggregator;
+    private RatTask spawningTask;
+    private int ticksSinceSpawnCycle;
 
     public RatManager(MinecraftRats plugin) {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
-        this.activeRats = new ArrayList<>();
-        this.ratNests = new HashMap<>();
+        this.registry = new RatRegistry();
+        this.spatialIndex = new SpatialIndex();
+        this.behaviorScheduler = new RatBehaviorScheduler(plugin, registry, spatialIndex);
+        this.spawnPlanner = new SpawnPlanner();
+        this.spawnCellCache = new SpawnCellCache();
+        this.flowFields = new FlowFieldCache(plugin);
+        this.nestManager = plugin.getNestManager();
+        this.spawnQueue = new SpawnQueue(plugin, this);
+        this.removalQueue = new RatRemovalQueue(plugin, this);
+        this.soundAggregator = new RatSoundAggregator(plugin);
     }
 
     /**
-     * Start the rat spawning task
+     * Start the rat spawning task. It wakes up every second and runs a spawn
+     * cycle once the configured interval has passed, so a reload can change
+     * the interval or toggle natural spawning without restarting it.
      */
     public void startSpawningTask() {
         if (spawningTask != null) {
             spawningTask.cancel();
         }
 
-        spawningTask = Bukkit.getScheduler().runTaskTimer(plugin, this::trySpawnRats, 200L, 600L);
+        ticksSinceSpawnCycle = Integer.MAX_VALUE;
+        spawningTask = plugin.getScheduler().runTimer(this::tickSpawning, 200L, SPAWN_CHECK_PERIOD);
     }
 
     /**
@@ -58,94 +90,487 @@ public class RatManager {
     }
 
     /**
-     * Try to spawn rats in all enabled worlds
+     * Stop the spawning tasks, wake hibernating rats and shut down the spawn planning threads
+     */
+    public void shutdown() {
+        stopSpawningTask();
+        behaviorScheduler.wakeAll();
+        spawnQueue.stop();
+        removalQueue.stop();
+        soundAggregator.stop();
+        spawnPlanner.shutdown();
+    }
+
+    /**
+     * Run a spawn cycle if natural spawning is on and the interval has passed
      */
-    private void trySpawnRats() {
-        if (!configManager.isNaturalSpawningEnabled()) {
+    private void tickSpawning() {
+        RatSettings settings = configManager.getSettings();
+        if (!settings.isNaturalSpawningEnabled()) {
             return;
         }
 
-        if (activeRats.size() >= configManager.getMaxRats()) {
+        if (ticksSinceSpawnCycle < settings.getSpawnInterval() - SPAWN_CHECK_PERIOD) {
+            ticksSinceSpawnCycle += SPAWN_CHECK_PERIOD;
             return;
         }
+        ticksSinceSpawnCycle = 0;
 
-        List<String> enabledWorldNames = configManager.getEnabledWorlds();
-        for (String worldName : enabledWorldNames) {
-            World world = Bukkit.getWorld(worldName);
-            if (world != null) {
-                trySpawnRatsInWorld(world);
+        trySpawnRats(settings);
+    }
+
+    /**
+     * Try to spawn rats in all enabled worlds
+     *
+     * @param settings The settings snapshot
+     */
+    private void trySpawnRats(RatSettings settings) {
+        long now = System.currentTimeMillis();
+        List<Nest> nests = new ArrayList<>();
+        List<SpawnPlanner.ScanRequest> scans = new ArrayList<>();
+        List<SpawnSelection> selections = new ArrayList<>();
+
+        long start = System.nanoTime();
+        try {
+            planSpawns(settings, now, nests, scans, selections);
+        } finally {
+            plugin.getMetrics().getSpawnCycle().recordSince(start);
+        }
+
+        for (Nest nest : nests) {
+            Location location = nest.toLocation();
+            if (location != null) {
+                spawnFromNest(nest, location, settings, now);
             }
         }
+        runSpawns(scans, selections, settings, null);
     }
 
     /**
-     * Try to spawn rats in a specific world
+     * Spawn rats around the players of every enabled world. Nests within
+     * activation range of a player are the spawn source there: each releases
+     * the rats it has grown since the last cycle. Only players with no nest in
+     * range get a chance at a spawn into a random cached cell, which is how
+     * new nests are founded. On a single main thread all players are planned
+     * in one batch; on a region-threaded server each player is planned on the
+     * thread that owns its region and each nest spawns on the thread that
+     * owns the nest. On a single main thread nothing is spawned here; the
+     * nests and selections are collected for the caller to spawn into.
      *
-     * @param world The world to spawn rats in
+     * @param settings The settings snapshot
+     * @param now The time of the spawn cycle in milliseconds
+     * @param nests The list to add nests that should release rats to
+     * @param scans The list to add chunk scans to
+     * @param selections The list to add spawn selections to
      */
-    private void trySpawnRatsInWorld(World world) {
-        List<Player> players = world.getPlayers();
-        if (players.isEmpty()) {
+    private void planSpawns(RatSettings settings, long now, List<Nest> nests,
+                            List<SpawnPlanner.ScanRequest> scans, List<SpawnSelection> selections) {
+        for (LivingEntity rat : registry.findInvalid()) {
+            unregisterRat(rat);
+        }
+        spawnCellCache.checkSettings(settings);
+
+        if (registry.size() >= settings.getMaxRats()) {
             return;
         }
 
-        for (Player player : players) {
-            if (Math.random() > configManager.getSpawnChance()) {
+        RatScheduler scheduler = plugin.getScheduler();
+        Set<Integer> visitedNests = ConcurrentHashMap.newKeySet();
+        for (String worldName : settings.getEnabledWorlds()) {
+            World world = Bukkit.getWorld(worldName);
+            if (world == null || registry.count(world) >= settings.getMaxRatsPerWorld()) {
+                continue;
+            }
+
+            for (Player player : world.getPlayers()) {
+                if (scheduler.isRegionized()) {
+                    scheduler.runFor(player, () -> {
+                        if (spawnFromNests(player, settings, now, visitedNests, null)
+                                || Math.random() > settings.getSpawnChance()) {
+                            return;
+                        }
+
+                        List<SpawnPlanner.ScanRequest> playerScans = new ArrayList<>();
+                        List<SpawnSelection> playerSelections = new ArrayList<>();
+                        planAroundPlayer(player, settings, playerScans, playerSelections);
+                        runSpawns(playerScans, playerSelections, settings, player.getLocation());
+                    }, null);
+                } else if (!spawnFromNests(player, settings, now, visitedNests, nests)
+                        && Math.random() <= settings.getSpawnChance()) {
+                    planAroundPlayer(player, settings, scans, selections);
+                }
+            }
+        }
+    }
+
+    /**
+     * Let the nests within activation range of a player release their rats.
+     * Nests already visited this cycle through another player are skipped.
+     *
+     * @param player The player
+     * @param settings The settings snapshot
+     * @param now The time of the spawn cycle in milliseconds
+     * @param visitedNests The ids of the nests visited this cycle
+     * @param nests The list to add the nests to, or null to spawn on the thread that owns each nest
+     * @return True if any nest is in range, so the nests are the spawn source around the player
+     */
+    private boolean spawnFromNests(Player player, RatSettings settings, long now, Set<Integer> visitedNests,
+                                   List<Nest> nests) {
+        if (!settings.isNestsEnabled() || settings.getNestActivationRange() <= 0) {
+            return false;
+        }
+
+        Location location = player.getLocation();
+        List<Nest> inRange = nestManager.within(location.getWorld(), location.getX(), location.getZ(),
+                settings.getNestActivationRange());
+        if (inRange.isEmpty()) {
+            return false;
+        }
+
+        for (Nest nest : inRange) {
+            Location nestLocation = nest.toLocation();
+            if (nestLocation == null || !visitedNests.add(nest.getId())) {
                 continue;
             }
 
-            if (activeRats.size() >= configManager.getMaxRats()) {
+            if (nests == null) {
+                plugin.getScheduler().runAt(nestLocation, () -> spawnFromNest(nest, nestLocation, settings, now));
+            } else {
+                nests.add(nest);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Grow a nest towards its capacity and spawn up to the per-cycle limit of
+     * its grown rats at the nest, as far as the population caps allow
+     *
+     * @param nest The nest
+     * @param location The nest location
+     * @param settings The settings snapshot
+     * @param now The time of the spawn cycle in milliseconds
+     */
+    private void spawnFromNest(Nest nest, Location location, RatSettings settings, long now) {
+        if (nestManager.get(nest.getId()) != nest
+                || !location.getWorld().isChunkLoaded(nest.getX() >> 4, nest.getZ() >> 4)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        nestManager.grow(nest, now, settings.getNestCapacity(), settings.getNestGrowthRate());
+
+        RatMetrics metrics = plugin.getMetrics();
+        int amount = Math.min((int) nest.getVirtualPopulation(), settings.getNestSpawnsPerCycle());
+        for (int i = 0; i < amount; i++) {
+            metrics.getSpawnAttempts().increment();
+            if (!canSpawnAt(location, settings) || spawnRat(location) == null) {
+                break;
+            }
+
+            nestManager.adjustVirtualPopulation(nest, -1.0);
+            metrics.getSpawnSuccesses().increment();
+        }
+        metrics.getSpawnApply().recordSince(start);
+    }
+
+    /**
+     * Scan the chunks of the selections that are not cached yet off the
+     * server threads, then spawn into the selections
+     *
+     * @param scans The chunk scans
+     * @param selections The spawn selections
+     * @param settings The settings snapshot
+     * @param anchor A location in the region that owns every selection, or null to spawn on the global thread
+     */
+    private void runSpawns(List<SpawnPlanner.ScanRequest> scans, List<SpawnSelection> selections,
+                           RatSettings settings, Location anchor) {
+        if (selections.isEmpty()) {
+            return;
+        }
+
+        if (scans.isEmpty()) {
+            long start = System.nanoTime();
+            spawnSelected(selections);
+            plugin.getMetrics().getSpawnApply().recordSince(start);
+            return;
+        }
+
+        spawnPlanner.scan(scans, settings).whenComplete((results, error) -> {
+            if (error != null) {
+                // Keep the chunks that were scanned and let the others be scanned again
+                for (SpawnPlanner.ScanRequest scan : scans) {
+                    if (scan.getCells() != null) {
+                        spawnCellCache.store(scan.getWorldId(), scan.getChunkKey(), scan.getToken(), scan.getCells());
+                    } else {
+                        spawnCellCache.release(scan.getWorldId(), scan.getChunkKey(), scan.getToken());
+                    }
+                }
+                plugin.getLogger().warning("Could not scan chunks for rat spawn cells: " + error.getMessage());
+                return;
+            }
+
+            if (!plugin.isEnabled()) {
                 return;
             }
 
-            Location spawnLoc = findSpawnLocation(player.getLocation());
-            if (spawnLoc != null) {
-                spawnRat(spawnLoc);
+            Runnable spawn = () -> {
+                long start = System.nanoTime();
+                for (SpawnPlanner.ScanRequest result : results) {
+                    spawnCellCache.store(result.getWorldId(), result.getChunkKey(), result.getToken(), result.getCells());
+                }
+                spawnSelected(selections);
+                plugin.getMetrics().getSpawnApply().recordSince(start);
+            };
+
+            if (anchor == null) {
+                plugin.getScheduler().run(spawn);
+            } else {
+                plugin.getScheduler().runAt(anchor, spawn);
             }
+        });
+    }
+
+    /**
+     * Queue scans for the loaded chunks around a player that are not cached
+     * yet, and a spawn selection over all of them
+     *
+     * @param player The player
+     * @param settings The settings snapshot
+     * @param scans The list to add chunk scans to
+     * @param selections The list to add spawn selections to
+     */
+    private void planAroundPlayer(Player player, RatSettings settings,
+                                  List<SpawnPlanner.ScanRequest> scans, List<SpawnSelection> selections) {
+        World world = player.getWorld();
+        UUID worldId = world.getUID();
+
+        // Chunks one and two rings out, roughly 16-32 blocks from the player
+        Location location = player.getLocation();
+        int centerX = location.getBlockX() >> 4;
+        int centerZ = location.getBlockZ() >> 4;
+        if (registry.countAround(world, centerX, centerZ) >= settings.getMaxRatsPerPlayer()) {
+            return;
+        }
+        List<Long> chunks = new ArrayList<>(24);
+
+        for (int dx = -SPAWN_RING; dx <= SPAWN_RING; dx++) {
+            for (int dz = -SPAWN_RING; dz <= SPAWN_RING; dz++) {
+                if (dx == 0 && dz == 0) {
+                    continue;
+                }
+
+                int chunkX = centerX + dx;
+                int chunkZ = centerZ + dz;
+                if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                    continue;
+                }
+
+                long key = RatRegistry.chunkKey(chunkX, chunkZ);
+                if (spawnCellCache.get(worldId, key) == null && !spawnCellCache.isPending(worldId, key)) {
+                    Object token = spawnCellCache.markPending(worldId, key);
+                    scans.add(spawnPlanner.prepare(world, chunkX, chunkZ, token));
+                }
+                chunks.add(key);
+            }
+        }
+
+        if (!chunks.isEmpty()) {
+            selections.add(new SpawnSelection(worldId, chunks));
         }
     }
 
     /**
-     * Find a valid location to spawn a rat
+     * Pick a cached spawn cell for every selection, revalidate it and spawn into it
      *
-     * @param playerLoc The player's location
-     * @return A valid spawn location, or null if none was found
+     * @param selections The spawn selections
      */
-    private Location findSpawnLocation(Location playerLoc) {
-        World world = playerLoc.getWorld();
-        if (world == null) {
-            return null;
+    private void spawnSelected(List<SpawnSelection> selections) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        RatMetrics metrics = plugin.getMetrics();
+
+        for (SpawnSelection selection : selections) {
+            if (registry.size() >= configManager.getMaxRats()) {
+                return;
+            }
+
+            World world = Bukkit.getWorld(selection.worldId);
+            if (world == null) {
+                continue;
+            }
+
+            int maxSkyLight = configManager.getSettings().getMaxLightLevel() + skyDarkening(world);
+            for (int attempt = 0; attempt < 3; attempt++) {
+                Location location = pickSpawnCell(world, selection, random, maxSkyLight);
+                if (location == null) {
+                    continue;
+                }
+
+                metrics.getSpawnAttempts().increment();
+                if (isValidSpawnLocation(location)) {
+                    if (canSpawnAt(location, configManager.getSettings())) {
+                        spawnRat(location);
+                        metrics.getSpawnSuccesses().increment();
+                    }
+                    break;
+                }
+            }
         }
+    }
 
-        for (int attempt = 0; attempt < 10; attempt++) {
-            int xOffset = ThreadLocalRandom.current().nextInt(16, 33) * (Math.random() > 0.5 ? 1 : -1);
-            int zOffset = ThreadLocalRandom.current().nextInt(16, 33) * (Math.random() > 0.5 ? 1 : -1);
+    /**
+     * Pick a chunk of a selection in proportion to its spawn weight, then a cell inside it
+     *
+     * @param world The world of the selection
+     * @param selection The spawn selection
+     * @param random The random source
+     * @param maxSkyLight The brightest raw sky light a cell may have at the current time of day
+     * @return The centre of the picked cell, or null if no chunk has spawnable cells or the cell is too bright
+     */
+    private Location pickSpawnCell(World world, SpawnSelection selection, Random random, int maxSkyLight) {
+        double total = 0.0;
+        for (long key : selection.chunks) {
+            SpawnCellCache.ChunkCells cells = spawnCellCache.get(selection.worldId, key);
+            if (cells != null) {
+                total += cells.getTotalWeight();
+            }
+        }
+        if (total <= 0) {
+            return null;
+        }
 
-            Location candidateLoc = playerLoc.clone().add(xOffset, 0, zOffset);
+        double target = random.nextDouble() * total;
+        for (long key : selection.chunks) {
+            SpawnCellCache.ChunkCells cells = spawnCellCache.get(selection.worldId, key);
+            if (cells == null || cells.isEmpty()) {
+                continue;
+            }
 
-            candidateLoc.setY(world.getHighestBlockYAt(candidateLoc));
+            target -= cells.getTotalWeight();
+            if (target < 0) {
+                int chunkX = (int) (key >> 32);
+                int chunkZ = (int) key;
+                if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                    return null;
+                }
 
-            if (isValidSpawnLocation(candidateLoc)) {
-                return candidateLoc;
+                int cell = cells.pick(random);
+                if (SpawnCellCache.ChunkCells.skyLight(cell) > maxSkyLight) {
+                    return null;
+                }
+                return new Location(world,
+                        (chunkX << 4) + SpawnCellCache.ChunkCells.blockX(cell) + 0.5,
+                        cells.blockY(cell),
+                        (chunkZ << 4) + SpawnCellCache.ChunkCells.blockZ(cell) + 0.5);
             }
         }
 
         return null;
     }
 
+    /**
+     * Work out how much the sky light of a world is dimmed by the time of day
+     * and the weather, the same way the server does for mob spawning
+     *
+     * @param world The world
+     * @return The darkening, from 0 at noon in clear weather to 11 at midnight
+     */
+    private static int skyDarkening(World world) {
+        double angle = (world.getTime() / 24000.0 - 0.25) % 1.0;
+        if (angle < 0) {
+            angle += 1.0;
+        }
+
+        double brightness = Math.cos(angle * Math.PI * 2.0) * 2.0 + 0.5;
+        brightness = Math.max(0.0, Math.min(1.0, brightness));
+        if (world.hasStorm()) {
+            brightness *= 1.0 - 5.0 / 16.0;
+        }
+        if (world.isThundering()) {
+            brightness *= 1.0 - 5.0 / 16.0;
+        }
+        return (int) ((1.0 - brightness) * 11.0);
+    }
+
+    /**
+     * Check the layered population caps for a spawn location: the global cap,
+     * then the world, chunk and region, and finally every player whose
+     * surroundings include the location. All counts come from the registry.
+     *
+     * @param location The spawn location
+     * @param settings The settings snapshot
+     * @return True if a rat may spawn at the location
+     */
+    public boolean canSpawnAt(Location location, RatSettings settings) {
+        World world = location.getWorld();
+        if (world == null || registry.size() >= settings.getMaxRats()) {
+            return false;
+        }
+
+        if (registry.count(world) >= settings.getMaxRatsPerWorld()) {
+            return false;
+        }
+
+        int chunkX = location.getBlockX() >> 4;
+        int chunkZ = location.getBlockZ() >> 4;
+        if (registry.countInChunk(world, chunkX, chunkZ) >= settings.getMaxRatsPerChunk()) {
+            return false;
+        }
+
+        int regionX = chunkX >> RatRegistry.REGION_SHIFT;
+        int regionZ = chunkZ >> RatRegistry.REGION_SHIFT;
+        if (registry.countInRegion(world, regionX, regionZ) >= settings.getMaxRatsPerRegion()) {
+            return false;
+        }
+
+        if (settings.getMaxRatsPerPlayer() == Integer.MAX_VALUE) {
+            return true;
+        }
+
+        for (Player player : world.getPlayers()) {
+            int playerChunkX = player.getLocation().getBlockX() >> 4;
+            int playerChunkZ = player.getLocation().getBlockZ() >> 4;
+
+            // Only players whose surrounding regions contain the spawn location
+            if (Math.abs((playerChunkX >> RatRegistry.REGION_SHIFT) - regionX) > 1
+                    || Math.abs((playerChunkZ >> RatRegistry.REGION_SHIFT) - regionZ) > 1) {
+                continue;
+            }
+
+            if (registry.countAround(world, playerChunkX, playerChunkZ) >= settings.getMaxRatsPerPlayer()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Drop the cached spawn cells and flow fields of a chunk after its blocks changed
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     */
+    public void invalidateChunkCaches(World world, int chunkX, int chunkZ) {
+        spawnCellCache.invalidate(world, chunkX, chunkZ);
+        flowFields.invalidate(world, chunkX, chunkZ);
+    }
+
     /**
      * Check if a location is valid for spawning a rat
      *
      * @param location The location to check
      * @return True if the location is valid, false otherwise
      */
-    private boolean isValidSpawnLocation(Location location) {
+    public boolean isValidSpawnLocation(Location location) {
         World world = location.getWorld();
         if (world == null) {
             return false;
         }
 
-        if (!configManager.getEnabledWorlds().contains(world.getName())) {
+        RatSettings settings = configManager.getSettings();
+        if (!settings.isWorldEnabled(world)) {
             return false;
         }
 
@@ -161,21 +586,16 @@ public class RatManager {
             return false;
         }
 
-        Biome biome = block.getBiome();
-        if (configManager.getDisabledBiomes().contains(biome)) {
-            return false;
-        }
-
-        int lightLevel = block.getLightLevel();
-        if (lightLevel < configManager.getMinLightLevel() || lightLevel > configManager.getMaxLightLevel()) {
+        if (settings.isBiomeDisabled(block.getBiome())) {
             return false;
         }
 
-        return true;
+        return settings.isLightLevelAllowed(block.getLightLevel());
     }
 
     /**
-     * Spawn a rat at the given location
+     * Spawn a rat at the given location. The rat is fully set up before it
+     * is added to the world, so clients receive it in a single spawn packet.
      *
      * @param location The location to spawn the rat at
      * @return The spawned rat entity
@@ -186,29 +606,37 @@ public class RatManager {
             return null;
         }
 
-        LivingEntity ratEntity = (LivingEntity) world.spawnEntity(location, EntityType.SILVERFISH);
+        RatSettings settings = configManager.getSettings();
+        RatSettings.RatColor color = getRandomRatColor();
 
-        String color = getRandomRatColor();
-        ratEntity.setCustomName("§7" + color + " Rat");
-        ratEntity.setCustomNameVisible(true);
+        LivingEntity ratEntity = world.spawn(location, Silverfish.class, rat -> {
+            rat.setCustomName(color.getCustomName());
+            // With nameplate LOD the behavior scheduler shows the name once a player is close
+            rat.setCustomNameVisible(!settings.isNameplateLodEnabled());
 
-        ratEntity.setMetadata("minecraftrats", new FixedMetadataValue(plugin, "rat"));
-        ratEntity.setMetadata("rat_color", new FixedMetadataValue(plugin, color));
+            RatData.tag(rat, color.getDisplayName());
 
-        ratEntity.setMaxHealth(configManager.getRatHealth());
-        ratEntity.setHealth(configManager.getRatHealth());
+            rat.setMaxHealth(settings.getRatHealth());
+            rat.setHealth(settings.getRatHealth());
 
-        ratEntity.setPersistent(true);
+            rat.setPersistent(true);
+        });
 
-        activeRats.add(ratEntity.getUniqueId());
+        registry.register(ratEntity);
 
-        if (configManager.isDebug()) {
+        if (settings.isDebug()) {
             plugin.getLogger().info("Spawned a rat at " + location.getWorld().getName() +
                     " (" + location.getX() + ", " + location.getY() + ", " + location.getZ() + ")");
         }
 
-        if (configManager.isNestsEnabled() && ratNests.size() < configManager.getMaxNests() && Math.random() < 0.3) {
-            createNest(location, ratEntity.getUniqueId());
+        if (settings.isNestsEnabled()) {
+            Nest nest = nestManager.nearest(world, location.getX(), location.getY(), location.getZ(),
+                    settings.getWanderDistance());
+            if (nest != null) {
+                joinNest(ratEntity, nest);
+            } else if (Math.random() < 0.3) {
+                createNest(location, ratEntity);
+            }
         }
 
         return ratEntity;
@@ -219,48 +647,27 @@ public class RatManager {
      *
      * @return A random rat color
      */
-    private String getRandomRatColor() {
-        if (!configManager.isCustomColorsEnabled() || configManager.getColorChances().isEmpty()) {
-            return "Brown";
-        }
-
-        Map<String, Double> colorChances = configManager.getColorChances();
-
-        double totalProbability = colorChances.values().stream().mapToDouble(Double::doubleValue).sum();
-
-        if (totalProbability <= 0) {
-            return "Brown";
-        }
-
-        double random = Math.random() * totalProbability;
-        double cumulativeProbability = 0.0;
-
-        for (Map.Entry<String, Double> entry : colorChances.entrySet()) {
-            cumulativeProbability += entry.getValue();
-            if (random <= cumulativeProbability) {
-                return entry.getKey().substring(0, 1).toUpperCase() + entry.getKey().substring(1).toLowerCase();
-            }
-        }
-
-        return "Brown";
+    public RatSettings.RatColor getRandomRatColor() {
+        return configManager.getSettings().pickColor(ThreadLocalRandom.current());
     }
 
     /**
      * Create a rat nest at the given location
      *
      * @param location The location to create the nest at
-     * @param ratId The UUID of the rat that the nest belongs to
+     * @param rat The rat that the nest belongs to
      */
-    private void createNest(Location location, UUID ratId) {
+    private void createNest(Location location, LivingEntity rat) {
         if (!configManager.isNestsEnabled()) {
             return;
         }
 
-        if (ratNests.size() >= configManager.getMaxNests()) {
+        Nest nest = nestManager.create(location, configManager.getMaxNests());
+        if (nest == null) {
             return;
         }
 
-        ratNests.put(ratId, location);
+        joinNest(rat, nest);
 
         if (configManager.isDebug()) {
             plugin.getLogger().info("Created a rat nest at " + location.getWorld().getName() +
@@ -268,68 +675,285 @@ public class RatManager {
         }
     }
 
+    /**
+     * Make a rat a member of a nest
+     *
+     * @param rat The rat entity
+     * @param nest The nest
+     */
+    private void joinNest(LivingEntity rat, Nest nest) {
+        RatData.setNestId(rat, nest.getId());
+        nestManager.adjustPopulation(nest, 1);
+    }
+
     /**
      * Get all active rats in the server
      *
      * @return A list of active rat entities
      */
     public List<LivingEntity> getAllRats() {
-        List<LivingEntity> rats = new ArrayList<>();
+        return registry.snapshot();
+    }
+
+    /**
+     * Get the number of active rats in the server
+     *
+     * @return The number of active rats
+     */
+    public int getRatCount() {
+        return registry.size();
+    }
+
+    /**
+     * Check if an entity is a live rat. Anything that isn't a silverfish is
+     * rejected on its type before the registry is consulted.
+     *
+     * @param entity The entity
+     * @return True if the entity is a registered rat
+     */
+    public boolean isRat(Entity entity) {
+        return entity != null && entity.getType() == EntityType.SILVERFISH && registry.contains(entity);
+    }
+
+    /**
+     * Register a rat that was loaded from disk
+     *
+     * @param rat The rat entity
+     */
+    public void registerLoadedRat(LivingEntity rat) {
+        registry.register(rat);
+    }
+
+    /**
+     * Register the rats in chunks that were already loaded before the plugin
+     * was enabled. Later chunks are picked up by the chunk listener.
+     */
+    public void loadExistingRats() {
+        // A region-threaded server can't walk every world from one thread;
+        // rats are registered as their entities load instead
+        if (plugin.getScheduler().isRegionized()) {
+            return;
+        }
 
         for (World world : Bukkit.getWorlds()) {
-            for (Entity entity : world.getLivingEntities()) {
-                if (entity instanceof LivingEntity && entity.hasMetadata("minecraftrats")) {
-                    rats.add((LivingEntity) entity);
+            for (Chunk chunk : world.getLoadedChunks()) {
+                for (Entity entity : chunk.getEntities()) {
+                    if (RatData.isTagged(entity)) {
+                        registerLoadedRat((LivingEntity) entity);
+                    }
                 }
             }
         }
 
-        return rats;
+        if (configManager.isDebug()) {
+            plugin.getLogger().info("Loaded " + registry.size() + " existing rats");
+        }
     }
 
     /**
-     * Remove all rats from the server
+     * Get the live rat registry
      *
-     * @return The number of rats removed
+     * @return RatRegistry instance
      */
-    public int removeAllRats() {
-        int count = 0;
+    public RatRegistry getRegistry() {
+        return registry;
+    }
 
-        List<LivingEntity> rats = getAllRats();
+    /**
+     * Get the predator and item spatial index
+     *
+     * @return SpatialIndex instance
+     */
+    public SpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
 
-        for (LivingEntity rat : rats) {
-            rat.remove();
-            count++;
+    /**
+     * Get the flow fields rats navigate back to their nests with
+     *
+     * @return FlowFieldCache instance
+     */
+    public FlowFieldCache getFlowFields() {
+        return flowFields;
+    }
+
+    /**
+     * Rebuild the spatial index from the loaded worlds, e.g. after the
+     * scared-of list changed
+     */
+    public void reseedSpatialIndex() {
+        // As above, entities are tracked as they spawn and load instead
+        if (plugin.getScheduler().isRegionized()) {
+            return;
         }
 
-        activeRats.clear();
-        ratNests.clear();
+        spatialIndex.clear();
+        RatSettings settings = configManager.getSettings();
+        for (World world : Bukkit.getWorlds()) {
+            spatialIndex.trackAll(world, settings);
+        }
+    }
 
-        return count;
+    /**
+     * Get the rat behavior scheduler
+     *
+     * @return RatBehaviorScheduler instance
+     */
+    public RatBehaviorScheduler getBehaviorScheduler() {
+        return behaviorScheduler;
     }
 
     /**
-     * Spawn a specific number of rats at a location
+     * Forget a rat that died or was removed, and take it out of its nest.
+     * Every path that drops a rat for good goes through here; only rats that
+     * unload with their chunk are dropped from the registry alone.
      *
-     * @param location The location to spawn rats at
-     * @param amount The number of rats to spawn
-     * @return The number of rats successfully spawned
+     * @param rat The rat entity
      */
-    public int spawnRats(Location location, int amount) {
-        int count = 0;
+    public void unregisterRat(Entity rat) {
+        if (!registry.unregister(rat)) {
+            return;
+        }
 
-        for (int i = 0; i < amount; i++) {
-            if (activeRats.size() >= configManager.getMaxRats()) {
-                break;
-            }
+        Nest nest = nestManager.get(RatData.getNestId(rat));
+        if (nest != null) {
+            nestManager.adjustPopulation(nest, -1);
+        }
+    }
 
-            LivingEntity rat = spawnRat(location);
-            if (rat != null) {
-                count++;
+    /**
+     * Queue rats for removal. They are removed over the next ticks under the
+     * per-tick removal budget, and any items they stole are dropped.
+     *
+     * @param rats The rats to remove, e.g. from one of the registry snapshots
+     * @param progress Called about once a second with the number removed so far, may be null
+     * @return A future completed on the main thread with the number of rats removed
+     */
+    public CompletableFuture<Integer> removeRats(List<LivingEntity> rats, IntConsumer progress) {
+        return removalQueue.submit(rats, progress);
+    }
+
+    /**
+     * Remove the nests in a world that match a filter
+     *
+     * @param world The world
+     * @param filter The filter
+     * @return The number of nests removed
+     */
+    public int removeNests(World world, Predicate<Nest> filter) {
+        List<Nest> removed = nestManager.removeIf(world, filter);
+        for (Nest nest : removed) {
+            flowFields.remove(nest);
+        }
+        return removed.size();
+    }
+
+    /**
+     * Remove every nest
+     */
+    public void removeAllNests() {
+        nestManager.clear();
+        flowFields.clear();
+    }
+
+    /**
+     * Turn a rat whose entities are unloading into virtual population of its
+     * nest. Rats without a nest, or carrying stolen items, stay real entities.
+     *
+     * @param rat The unloading rat
+     * @return True if the rat was removed and counted towards its nest
+     */
+    public boolean dematerialize(LivingEntity rat) {
+        RatSettings settings = configManager.getSettings();
+        if (!settings.isNestsEnabled() || settings.getNestMaterializeCap() == 0
+                || rat.isDead() || RatData.getStolenItemCount(rat) > 0) {
+            return false;
+        }
+
+        Nest nest = nestManager.get(RatData.getNestId(rat));
+        if (nest == null) {
+            return false;
+        }
+
+        unregisterRat(rat);
+        nestManager.adjustVirtualPopulation(nest, 1.0);
+        rat.remove();
+        return true;
+    }
+
+    /**
+     * Grow the virtual populations of the nests in a loading chunk and queue
+     * up to the materialization cap of them as real rats
+     *
+     * @param chunk The loading chunk
+     */
+    public void materializeNests(Chunk chunk) {
+        RatSettings settings = configManager.getSettings();
+        if (!settings.isNestsEnabled()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (Nest nest : nestManager.inChunk(chunk.getWorld(), chunk.getX(), chunk.getZ())) {
+            nestManager.grow(nest, now, settings.getNestCapacity(), settings.getNestGrowthRate());
+
+            int amount = Math.min((int) nest.getVirtualPopulation(), settings.getNestMaterializeCap());
+            if (amount <= 0) {
+                continue;
             }
+
+            // Take the rats out now so a quick reload can't materialize them twice
+            nestManager.adjustVirtualPopulation(nest, -amount);
+            final Nest target = nest;
+            spawnRats(nest.toLocation(), amount).thenAccept(rats -> {
+                if (rats.size() < amount && nestManager.get(target.getId()) == target) {
+                    nestManager.adjustVirtualPopulation(target, amount - rats.size());
+                }
+            });
+        }
+    }
+
+    /**
+     * Restart the growth clocks of the nests in an unloading chunk, so the
+     * time it spent loaded is not counted as growth
+     *
+     * @param chunk The unloading chunk
+     */
+    public void suspendNests(Chunk chunk) {
+        long now = System.currentTimeMillis();
+        for (Nest nest : nestManager.inChunk(chunk.getWorld(), chunk.getX(), chunk.getZ())) {
+            nestManager.touch(nest, now);
         }
+    }
 
-        return count;
+    /**
+     * Queue a specific number of rats to be spawned at a location. The rats
+     * are spawned over the next ticks under the per-tick spawn budget.
+     *
+     * @param location The location to spawn rats at
+     * @param amount The number of rats to spawn
+     * @return A future completed on the main thread with the rats that were spawned
+     */
+    public CompletableFuture<List<LivingEntity>> spawnRats(Location location, int amount) {
+        return spawnQueue.submit(location, amount);
+    }
+
+    /**
+     * Get the bulk spawn queue
+     *
+     * @return SpawnQueue instance
+     */
+    public SpawnQueue getSpawnQueue() {
+        return spawnQueue;
+    }
+
+    /**
+     * Get the sound aggregator rat sounds are played through
+     *
+     * @return RatSoundAggregator instance
+     */
+    public RatSoundAggregator getSoundAggregator() {
+        return soundAggregator;
     }
 
     /**
@@ -339,34 +963,51 @@ public class RatManager {
      */
     public List<ItemStack> getRatDrops() {
         List<ItemStack> drops = new ArrayList<>();
+        addRatDrops(drops);
+        return drops;
+    }
 
-        if (!configManager.isDropsEnabled()) {
-            return drops;
+    /**
+     * Roll the drop table and add the results to an existing list
+     *
+     * @param drops The list to add the drops to
+     */
+    public void addRatDrops(List<ItemStack> drops) {
+        RatSettings settings = configManager.getSettings();
+        if (!settings.isDropsEnabled()) {
+            return;
         }
 
-        Map<XMaterial, ConfigManager.RatDrop> possibleDrops = configManager.getDrops();
-
-        for (ConfigManager.RatDrop drop : possibleDrops.values()) {
-            if (Math.random() <= drop.getChance()) {
-                Optional<ItemStack> item = Optional.ofNullable(drop.getMaterial().parseItem());
-                if (item.isPresent()) {
-                    ItemStack dropItem = item.get();
-                    dropItem.setAmount(drop.getAmount());
-                    drops.add(dropItem);
-                }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ConfigManager.RatDrop[] table = settings.getDropTable();
+        for (int i = 0; i < table.length; i++) {
+            if (random.nextDouble() < table[i].getChance()) {
+                drops.add(settings.getDropTemplate(i).clone());
             }
         }
-
-        return drops;
     }
 
     /**
-     * Get the nest location for a rat
+     * Get the nest a rat belongs to
      *
-     * @param ratId The UUID of the rat
-     * @return The nest location, or null if the rat doesn't have a nest
+     * @param rat The rat entity
+     * @return The nest, or null if the rat doesn't have a nest
      */
-    public Location getRatNest(UUID ratId) {
-        return ratNests.get(ratId);
+    public Nest getRatNest(LivingEntity rat) {
+        int nestId = RatData.getNestId(rat);
+        return nestId == 0 ? null : nestManager.get(nestId);
+    }
+
+    /**
+     * The loaded chunks around one player that were picked for a spawn attempt
+     */
+    private static class SpawnSelection {
+        private final UUID worldId;
+        private final List<Long> chunks;
+
+        private SpawnSelection(UUID worldId, List<Long> chunks) {
+            this.worldId = worldId;
+            this.chunks = chunks;
+        }
     }
-}
\ No newline at end of file
+}
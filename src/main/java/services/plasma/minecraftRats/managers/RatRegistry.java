@@ -0,0 +1,581 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Index of every live rat, keyed by entity UUID and by world/chunk.
+ * Counts are O(1) and iteration walks a dense array without allocating.
+ * Every method is synchronized so region threads can share the registry;
+ * on a server with one main thread the lock is never contended.
+ */
+public class RatRegistry {
+
+    /**
+     * Regions are 4x4 chunks (64x64 blocks)
+     */
+    public static final int REGION_SHIFT = 2;
+
+    private final Map<UUID, RatEntry> entries;
+    private final IntHashSet entityIds;
+    private final ArrayList<RatEntry> dense;
+    private final Map<UUID, WorldIndex> worlds;
+    private int hibernatingCount;
+
+    public RatRegistry() {
+        this.entries = new HashMap<>();
+        this.entityIds = new IntHashSet();
+        this.dense = new ArrayList<>();
+        this.worlds = new HashMap<>();
+    }
+
+    /**
+     * Register a rat entity
+     *
+     * @param rat The rat entity
+     * @return True if the rat was newly registered
+     */
+    public synchronized boolean register(LivingEntity rat) {
+        UUID id = rat.getUniqueId();
+        if (entries.containsKey(id)) {
+            return false;
+        }
+
+        Location location = rat.getLocation();
+        RatEntry entry = new RatEntry(rat, rat.getEntityId(), location.getWorld().getUID(),
+                chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+
+        // A rat saved while hibernating comes back without AI
+        entry.hibernating = !rat.hasAI();
+        if (entry.hibernating) {
+            hibernatingCount++;
+        }
+
+        entry.index = dense.size();
+        dense.add(entry);
+        entries.put(id, entry);
+        entityIds.add(entry.entityId);
+        worldIndex(entry.worldId).add(entry);
+
+        return true;
+    }
+
+    /**
+     * Unregister a rat entity
+     *
+     * @param rat The rat entity
+     * @return True if the rat was registered
+     */
+    public synchronized boolean unregister(Entity rat) {
+        return unregister(rat.getUniqueId());
+    }
+
+    /**
+     * Unregister a rat by its UUID
+     *
+     * @param ratId The UUID of the rat
+     * @return True if the rat was registered
+     */
+    public synchronized boolean unregister(UUID ratId) {
+        RatEntry entry = entries.remove(ratId);
+        if (entry == null) {
+            return false;
+        }
+        entityIds.remove(entry.entityId);
+        if (entry.hibernating) {
+            hibernatingCount--;
+        }
+
+        // Swap-remove keeps the dense array packed in O(1)
+        int last = dense.size() - 1;
+        RatEntry moved = dense.get(last);
+        dense.set(entry.index, moved);
+        moved.index = entry.index;
+        dense.remove(last);
+
+        WorldIndex index = worlds.get(entry.worldId);
+        if (index != null) {
+            index.remove(entry);
+        }
+
+        return true;
+    }
+
+    /**
+     * Move a rat to the chunk bucket matching its current position
+     *
+     * @param rat The rat entity
+     */
+    public synchronized void reindex(LivingEntity rat) {
+        RatEntry entry = entries.get(rat.getUniqueId());
+        if (entry == null) {
+            return;
+        }
+
+        Location location = rat.getLocation();
+        UUID worldId = location.getWorld().getUID();
+        long key = chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+
+        if (key == entry.chunkKey && worldId.equals(entry.worldId)) {
+            return;
+        }
+
+        WorldIndex oldIndex = worlds.get(entry.worldId);
+        if (oldIndex != null) {
+            oldIndex.remove(entry);
+        }
+
+        entry.worldId = worldId;
+        entry.chunkKey = key;
+        worldIndex(worldId).add(entry);
+    }
+
+    /**
+     * Check if an entity is a registered rat. This tests the runtime entity
+     * id against a primitive set, so it neither hashes a UUID nor boxes.
+     *
+     * @param entity The entity
+     * @return True if the entity is a registered rat
+     */
+    public synchronized boolean contains(Entity entity) {
+        return entityIds.contains(entity.getEntityId());
+    }
+
+    /**
+     * Check if a UUID belongs to a registered rat
+     *
+     * @param ratId The UUID
+     * @return True if the UUID belongs to a registered rat
+     */
+    public synchronized boolean contains(UUID ratId) {
+        return entries.containsKey(ratId);
+    }
+
+    /**
+     * Get a registered rat by its UUID
+     *
+     * @param ratId The UUID of the rat
+     * @return The rat entity, or null if it is not registered
+     */
+    public synchronized LivingEntity get(UUID ratId) {
+        RatEntry entry = entries.get(ratId);
+        return entry == null ? null : entry.entity;
+    }
+
+    /**
+     * Get the rat at a position in the dense array
+     *
+     * @param index The position, between 0 and {@link #size()}
+     * @return The rat entity
+     */
+    public synchronized LivingEntity get(int index) {
+        return dense.get(index).entity;
+    }
+
+    /**
+     * Check if a rat is hibernating
+     *
+     * @param rat The rat entity
+     * @return True if the rat is registered and hibernating
+     */
+    public synchronized boolean isHibernating(Entity rat) {
+        RatEntry entry = entries.get(rat.getUniqueId());
+        return entry != null && entry.hibernating;
+    }
+
+    /**
+     * Mark a rat as hibernating or awake
+     *
+     * @param rat The rat entity
+     * @param hibernating Whether the rat is hibernating
+     */
+    public synchronized void setHibernating(Entity rat, boolean hibernating) {
+        RatEntry entry = entries.get(rat.getUniqueId());
+        if (entry != null && entry.hibernating != hibernating) {
+            entry.hibernating = hibernating;
+            hibernatingCount += hibernating ? 1 : -1;
+        }
+    }
+
+    /**
+     * Check if a rat is on its way back to its nest
+     *
+     * @param rat The rat entity
+     * @return True if the rat is registered and returning
+     */
+    public synchronized boolean isReturning(Entity rat) {
+        RatEntry entry = entries.get(rat.getUniqueId());
+        return entry != null && entry.returning;
+    }
+
+    /**
+     * Mark a rat as returning to its nest or not
+     *
+     * @param rat The rat entity
+     * @param returning Whether the rat is returning
+     */
+    public synchronized void setReturning(Entity rat, boolean returning) {
+        RatEntry entry = entries.get(rat.getUniqueId());
+        if (entry != null) {
+            entry.returning = returning;
+        }
+    }
+
+    /**
+     * Get the number of hibernating rats
+     *
+     * @return The number of hibernating rats
+     */
+    public synchronized int getHibernatingCount() {
+        return hibernatingCount;
+    }
+
+    /**
+     * Get the number of registered rats
+     *
+     * @return The number of rats
+     */
+    public synchronized int size() {
+        return dense.size();
+    }
+
+    /**
+     * Get the number of registered rats in a world
+     *
+     * @param world The world
+     * @return The number of rats in the world
+     */
+    public synchronized int count(World world) {
+        WorldIndex index = worlds.get(world.getUID());
+        return index == null ? 0 : index.count;
+    }
+
+    /**
+     * Get the number of registered rats in a chunk
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The number of rats in the chunk
+     */
+    public synchronized int countInChunk(World world, int chunkX, int chunkZ) {
+        WorldIndex index = worlds.get(world.getUID());
+        if (index == null) {
+            return 0;
+        }
+
+        List<RatEntry> bucket = index.chunks.get(chunkKey(chunkX, chunkZ));
+        return bucket == null ? 0 : bucket.size();
+    }
+
+    /**
+     * Get the number of registered rats in a 64x64 block region
+     *
+     * @param world The world
+     * @param regionX The region X coordinate (chunk X >> {@link #REGION_SHIFT})
+     * @param regionZ The region Z coordinate (chunk Z >> {@link #REGION_SHIFT})
+     * @return The number of rats in the region
+     */
+    public synchronized int countInRegion(World world, int regionX, int regionZ) {
+        WorldIndex index = worlds.get(world.getUID());
+        if (index == null) {
+            return 0;
+        }
+
+        int[] counter = index.regions.get(chunkKey(regionX, regionZ));
+        return counter == null ? 0 : counter[0];
+    }
+
+    /**
+     * Get the number of registered rats in the region of a chunk and the
+     * eight regions around it, roughly everything within 64-128 blocks
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The number of rats around the chunk
+     */
+    public synchronized int countAround(World world, int chunkX, int chunkZ) {
+        WorldIndex index = worlds.get(world.getUID());
+        if (index == null) {
+            return 0;
+        }
+
+        int regionX = chunkX >> REGION_SHIFT;
+        int regionZ = chunkZ >> REGION_SHIFT;
+        int count = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                int[] counter = index.regions.get(chunkKey(regionX + dx, regionZ + dz));
+                if (counter != null) {
+                    count += counter[0];
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Run an action for every registered rat
+     *
+     * @param action The action to run
+     */
+    public synchronized void forEach(Consumer<LivingEntity> action) {
+        for (int i = 0, size = dense.size(); i < size; i++) {
+            action.accept(dense.get(i).entity);
+        }
+    }
+
+    /**
+     * Run an action for every registered rat in a chunk
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @param action The action to run
+     */
+    public synchronized void forEachInChunk(World world, int chunkX, int chunkZ, Consumer<LivingEntity> action) {
+        WorldIndex index = worlds.get(world.getUID());
+        if (index == null) {
+            return;
+        }
+
+        List<RatEntry> bucket = index.chunks.get(chunkKey(chunkX, chunkZ));
+        if (bucket == null) {
+            return;
+        }
+
+        for (int i = 0, size = bucket.size(); i < size; i++) {
+            action.accept(bucket.get(i).entity);
+        }
+    }
+
+    /**
+     * Copy the registered rats in a world into a new list
+     *
+     * @param world The world
+     * @return A list of rats in the world
+     */
+    public synchronized List<LivingEntity> snapshot(World world) {
+        WorldIndex index = worlds.get(world.getUID());
+        if (index == null) {
+            return new ArrayList<>();
+        }
+
+        List<LivingEntity> rats = new ArrayList<>(index.count);
+        for (List<RatEntry> bucket : index.chunks.values()) {
+            for (int i = 0, size = bucket.size(); i < size; i++) {
+                rats.add(bucket.get(i).entity);
+            }
+        }
+        return rats;
+    }
+
+    /**
+     * Copy the registered rats within a horizontal radius into a new list.
+     * Only the chunk buckets overlapping the radius are visited, or every
+     * bucket once the radius spans more chunks than there are buckets.
+     *
+     * @param world The world
+     * @param x The X coordinate of the centre
+     * @param z The Z coordinate of the centre
+     * @param radius The radius in blocks
+     * @return A list of rats within the radius
+     */
+    public synchronized List<LivingEntity> snapshotNear(World world, double x, double z, double radius) {
+        List<LivingEntity> rats = new ArrayList<>();
+        WorldIndex index = worlds.get(world.getUID());
+        if (index == null || !(radius >= 0) || Double.isInfinite(radius)) {
+            return rats;
+        }
+
+        long minX = (long) Math.floor(x - radius) >> 4;
+        long maxX = (long) Math.floor(x + radius) >> 4;
+        long minZ = (long) Math.floor(z - radius) >> 4;
+        long maxZ = (long) Math.floor(z + radius) >> 4;
+        double radiusSquared = radius * radius;
+        Location scratch = new Location(null, 0, 0, 0);
+
+        if ((maxX - minX + 1) * (maxZ - minZ + 1) > index.chunks.size()) {
+            for (List<RatEntry> bucket : index.chunks.values()) {
+                collectNear(bucket, x, z, radiusSquared, scratch, rats);
+            }
+            return rats;
+        }
+
+        for (int chunkX = (int) minX; chunkX <= maxX; chunkX++) {
+            for (int chunkZ = (int) minZ; chunkZ <= maxZ; chunkZ++) {
+                List<RatEntry> bucket = index.chunks.get(chunkKey(chunkX, chunkZ));
+                if (bucket != null) {
+                    collectNear(bucket, x, z, radiusSquared, scratch, rats);
+                }
+            }
+        }
+        return rats;
+    }
+
+    private static void collectNear(List<RatEntry> bucket, double x, double z, double radiusSquared,
+                                    Location scratch, List<LivingEntity> rats) {
+        for (int i = 0, size = bucket.size(); i < size; i++) {
+            LivingEntity rat = bucket.get(i).entity;
+            rat.getLocation(scratch);
+            double dx = scratch.getX() - x;
+            double dz = scratch.getZ() - z;
+            if (dx * dx + dz * dz <= radiusSquared) {
+                rats.add(rat);
+            }
+        }
+    }
+
+    /**
+     * Copy the registered rats in a chunk into a new list
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return A list of rats in the chunk
+     */
+    public synchronized List<LivingEntity> snapshotChunk(World world, int chunkX, int chunkZ) {
+        List<LivingEntity> rats = new ArrayList<>();
+        forEachInChunk(world, chunkX, chunkZ, rats::add);
+        return rats;
+    }
+
+    /**
+     * Copy the registered rats into a new list
+     *
+     * @return A list of registered rats
+     */
+    public synchronized List<LivingEntity> snapshot() {
+        List<LivingEntity> rats = new ArrayList<>(dense.size());
+        for (int i = 0, size = dense.size(); i < size; i++) {
+            rats.add(dense.get(i).entity);
+        }
+        return rats;
+    }
+
+    /**
+     * Collect every registered rat whose entity is no longer valid. The rats
+     * stay registered; they should be dropped through the rat manager so
+     * their nests are updated.
+     *
+     * @return The invalid rats
+     */
+    public synchronized List<LivingEntity> findInvalid() {
+        List<LivingEntity> invalid = new ArrayList<>();
+        for (int i = 0, size = dense.size(); i < size; i++) {
+            LivingEntity rat = dense.get(i).entity;
+            if (!rat.isValid()) {
+                invalid.add(rat);
+            }
+        }
+        return invalid;
+    }
+
+    /**
+     * Remove every entry
+     */
+    public synchronized void clear() {
+        entries.clear();
+        entityIds.clear();
+        dense.clear();
+        hibernatingCount = 0;
+        worlds.clear();
+    }
+
+    private WorldIndex worldIndex(UUID worldId) {
+        WorldIndex index = worlds.get(worldId);
+        if (index == null) {
+            index = new WorldIndex();
+            worlds.put(worldId, index);
+        }
+        return index;
+    }
+
+    /**
+     * Pack chunk coordinates into a single long key
+     *
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The packed key
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A registered rat and its position in the indexes
+     */
+    private static class RatEntry {
+        private final LivingEntity entity;
+        private final int entityId;
+        private UUID worldId;
+        private long chunkKey;
+        private int index;
+        private boolean hibernating;
+        private boolean returning;
+
+        private RatEntry(LivingEntity entity, int entityId, UUID worldId, long chunkKey) {
+            this.entity = entity;
+            this.entityId = entityId;
+            this.worldId = worldId;
+            this.chunkKey = chunkKey;
+        }
+    }
+
+    /**
+     * Per-world rat count, chunk buckets and region counters
+     */
+    private static class WorldIndex {
+        private final Map<Long, List<RatEntry>> chunks = new HashMap<>();
+        private final Map<Long, int[]> regions = new HashMap<>();
+        private int count;
+
+        private static long regionKey(long chunkKey) {
+            return chunkKey((int) (chunkKey >> 32) >> REGION_SHIFT, (int) chunkKey >> REGION_SHIFT);
+        }
+
+        private void add(RatEntry entry) {
+            List<RatEntry> bucket = chunks.get(entry.chunkKey);
+            if (bucket == null) {
+                bucket = new ArrayList<>(4);
+                chunks.put(entry.chunkKey, bucket);
+            }
+            bucket.add(entry);
+            count++;
+
+            long regionKey = regionKey(entry.chunkKey);
+            int[] counter = regions.get(regionKey);
+            if (counter == null) {
+                counter = new int[1];
+                regions.put(regionKey, counter);
+            }
+            counter[0]++;
+        }
+
+        private void remove(RatEntry entry) {
+            List<RatEntry> bucket = chunks.get(entry.chunkKey);
+            if (bucket != null && bucket.remove(entry)) {
+                count--;
+                if (bucket.isEmpty()) {
+                    chunks.remove(entry.chunkKey);
+                }
+
+                long regionKey = regionKey(entry.chunkKey);
+                int[] counter = regions.get(regionKey);
+                if (counter != null && --counter[0] <= 0) {
+                    regions.remove(regionKey);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.Location;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.inventory.ItemStack;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.entities.RatData;
+import services.plasma.minecraftRats.scheduler.RatScheduler;
+import services.plasma.minecraftRats.scheduler.RatTask;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
+
+/**
+ * Queue of mass removals, drained under a per-tick removal budget so a
+ * large kill is spread over several ticks. The task only runs while there
+ * are removals waiting. On a region-threaded server each rat is removed on
+ * the thread that owns it.
+ */
+public class RatRemovalQueue {
+
+    private static final long PROGRESS_INTERVAL = 20L;
+
+    private final MinecraftRats plugin;
+    private final RatManager ratManager;
+    private final ArrayDeque<Removal> removals;
+    private RatTask task;
+    private long currentTick;
+
+    public RatRemovalQueue(MinecraftRats plugin, RatManager ratManager) {
+        this.plugin = plugin;
+        this.ratManager = ratManager;
+        this.removals = new ArrayDeque<>();
+    }
+
+    /**
+     * Queue rats for removal
+     *
+     * @param targets The rats to remove
+     * @param progress Called on the global thread about once a second with the number removed so far, may be null
+     * @return A future with the number of rats removed, completed on the thread that removed the last of them
+     */
+    public synchronized CompletableFuture<Integer> submit(List<LivingEntity> targets, IntConsumer progress) {
+        Removal removal = new Removal(targets, progress, currentTick);
+        if (targets.isEmpty()) {
+            removal.future.complete(0);
+            return removal.future;
+        }
+
+        removals.add(removal);
+        if (task == null) {
+            task = plugin.getScheduler().runTimer(this::tick, 0L, 1L);
+        }
+        return removal.future;
+    }
+
+    /**
+     * Get the number of rats still waiting to be removed
+     *
+     * @return The number of queued rats
+     */
+    public synchronized int getQueuedCount() {
+        int count = 0;
+        for (Removal removal : removals) {
+            count += removal.targets.size() - removal.cursor;
+        }
+        return count;
+    }
+
+    /**
+     * Stop the queue and complete every waiting removal with what it has removed so far.
+     * Rats that were not removed stay in the world.
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        Removal removal;
+        while ((removal = removals.poll()) != null) {
+            removal.finishNow();
+        }
+    }
+
+    private synchronized void tick() {
+        currentTick++;
+        int budget = plugin.getConfigManager().getSettings().getRemovalsPerTick();
+        RatScheduler scheduler = plugin.getScheduler();
+
+        while (budget > 0 && !removals.isEmpty()) {
+            Removal removal = removals.peek();
+
+            while (budget > 0 && removal.cursor < removal.targets.size()) {
+                LivingEntity rat = removal.targets.get(removal.cursor++);
+                budget--;
+
+                removal.dispatched();
+                if (scheduler.isRegionized()) {
+                    scheduler.runFor(rat, () -> removal.landed(remove(rat)), () -> removal.landed(false));
+                } else {
+                    removal.landed(remove(rat));
+                }
+            }
+
+            if (removal.cursor >= removal.targets.size()) {
+                removals.poll();
+                removal.finish();
+            }
+        }
+
+        // Report from the head of the queue only; waiting removals have nothing to say yet
+        Removal head = removals.peek();
+        if (head != null && head.progress != null && currentTick - head.lastReport >= PROGRESS_INTERVAL) {
+            head.lastReport = currentTick;
+            head.progress.accept(head.getRemoved());
+        }
+
+        if (removals.isEmpty() && task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private boolean remove(LivingEntity rat) {
+        // Rats that died or unloaded since the targets were resolved are skipped
+        if (!rat.isValid() || !ratManager.isRat(rat)) {
+            return false;
+        }
+
+        returnStolenItems(rat);
+        ratManager.unregisterRat(rat);
+        rat.remove();
+        return true;
+    }
+
+    private static void returnStolenItems(LivingEntity rat) {
+        if (RatData.getStolenItemCount(rat) == 0) {
+            return;
+        }
+
+        Location location = rat.getLocation();
+        for (ItemStack item : RatData.takeStolenItems(rat)) {
+            location.getWorld().dropItemNaturally(location, item);
+        }
+    }
+
+    /**
+     * A queued removal and its progress. Removals may land on other threads,
+     * so it completes once every target was dispatched and has landed.
+     */
+    private static class Removal {
+        private final List<LivingEntity> targets;
+        private final IntConsumer progress;
+        private final CompletableFuture<Integer> future;
+        private int cursor;
+        private int removed;
+        private int pending;
+        private boolean finished;
+        private long lastReport;
+
+        private Removal(List<LivingEntity> targets, IntConsumer progress, long currentTick) {
+            this.targets = targets;
+            this.progress = progress;
+            this.future = new CompletableFuture<>();
+            this.lastReport = currentTick;
+        }
+
+        private synchronized int getRemoved() {
+            return removed;
+        }
+
+        private synchronized void dispatched() {
+            pending++;
+        }
+
+        private synchronized void landed(boolean wasRemoved) {
+            if (wasRemoved) {
+                removed++;
+            }
+            pending--;
+            completeIfDone();
+        }
+
+        private synchronized void finish() {
+            finished = true;
+            completeIfDone();
+        }
+
+        private synchronized void finishNow() {
+            finished = true;
+            future.complete(removed);
+        }
+
+        private void completeIfDone() {
+            if (finished && pending == 0) {
+                future.complete(removed);
+            }
+        }
+    }
+}
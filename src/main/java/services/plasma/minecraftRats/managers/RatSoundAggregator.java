@@ -0,0 +1,211 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.Location;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.scheduler.RatScheduler;
+import services.plasma.minecraftRats.scheduler.RatTask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects rat sounds per chunk and plays them once per tick. Each chunk plays
+ * at most a few sounds, the ones with the most rats behind them, louder the
+ * more rats asked for them. Sounds are only sent to players close enough to
+ * hear them. The task only runs while sounds are coming in.
+ */
+public class RatSoundAggregator {
+
+    private static final double AUDIBLE_RANGE = 16.0;
+    private static final double MAX_VOLUME_SCALE = 4.0;
+
+    private final MinecraftRats plugin;
+    private Map<World, Map<Long, ChunkSounds>> pending;
+    private RatTask task;
+
+    public RatSoundAggregator(MinecraftRats plugin) {
+        this.plugin = plugin;
+        this.pending = new HashMap<>();
+    }
+
+    /**
+     * Ask for a sound to be played at a location on the next tick
+     *
+     * @param location The location of the rat making the sound
+     * @param sound The sound
+     * @param volume The volume for a single rat
+     * @param pitch The pitch
+     */
+    public synchronized void play(Location location, Sound sound, float volume, float pitch) {
+        World world = location.getWorld();
+        if (world == null) {
+            return;
+        }
+
+        Map<Long, ChunkSounds> chunks = pending.get(world);
+        if (chunks == null) {
+            chunks = new HashMap<>();
+            pending.put(world, chunks);
+        }
+
+        long key = RatRegistry.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        ChunkSounds sounds = chunks.get(key);
+        if (sounds == null) {
+            sounds = new ChunkSounds();
+            chunks.put(key, sounds);
+        }
+        sounds.add(location, sound, volume, pitch);
+
+        if (task == null) {
+            task = plugin.getScheduler().runTimer(this::tick, 0L, 1L);
+        }
+    }
+
+    /**
+     * Stop the task and drop every sound that has not been played yet
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        pending.clear();
+    }
+
+    private void tick() {
+        Map<World, Map<Long, ChunkSounds>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                // Nothing came in since the last tick
+                if (task != null) {
+                    task.cancel();
+                    task = null;
+                }
+                return;
+            }
+
+            batch = pending;
+            pending = new HashMap<>();
+        }
+
+        int limit = plugin.getConfigManager().getSettings().getSoundsPerChunk();
+        RatScheduler scheduler = plugin.getScheduler();
+
+        for (Map.Entry<World, Map<Long, ChunkSounds>> entry : batch.entrySet()) {
+            World world = entry.getKey();
+            List<Player> players = scheduler.isRegionized() ? null : world.getPlayers();
+
+            for (ChunkSounds sounds : entry.getValue().values()) {
+                for (SoundGroup group : sounds.loudest(limit)) {
+                    if (scheduler.isRegionized()) {
+                        // Only the region that owns the chunk may look up the players around it
+                        scheduler.runAt(group.toLocation(world), () -> emitNearby(world, group));
+                    } else {
+                        emit(world, group, players);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void emitNearby(World world, SoundGroup group) {
+        double range = group.range();
+        Collection<Entity> nearby = world.getNearbyEntities(group.toLocation(world), range, range, range,
+                entity -> entity instanceof Player);
+
+        List<Player> players = new ArrayList<>(nearby.size());
+        for (Entity entity : nearby) {
+            players.add((Player) entity);
+        }
+        emit(world, group, players);
+    }
+
+    private static void emit(World world, SoundGroup group, Collection<Player> players) {
+        Location location = group.toLocation(world);
+        Location scratch = new Location(null, 0, 0, 0);
+        float volume = group.volume();
+        double range = group.range();
+        double rangeSquared = range * range;
+
+        for (Player player : players) {
+            player.getLocation(scratch);
+            if (scratch.getWorld() == world && scratch.distanceSquared(location) <= rangeSquared) {
+                player.playSound(location, group.sound, volume, group.pitch);
+            }
+        }
+    }
+
+    /**
+     * The sounds requested in one chunk during one tick
+     */
+    private static class ChunkSounds {
+        private final List<SoundGroup> groups = new ArrayList<>(2);
+
+        private void add(Location location, Sound sound, float volume, float pitch) {
+            for (SoundGroup group : groups) {
+                if (group.sound == sound && group.pitch == pitch) {
+                    group.add(location, volume);
+                    return;
+                }
+            }
+
+            SoundGroup group = new SoundGroup(sound, pitch);
+            group.add(location, volume);
+            groups.add(group);
+        }
+
+        private List<SoundGroup> loudest(int limit) {
+            if (groups.size() > limit) {
+                groups.sort((a, b) -> Integer.compare(b.count, a.count));
+                return groups.subList(0, limit);
+            }
+            return groups;
+        }
+    }
+
+    /**
+     * Every request for one sound in a chunk, played once at their centre
+     */
+    private static class SoundGroup {
+        private final Sound sound;
+        private final float pitch;
+        private float baseVolume;
+        private int count;
+        private double sumX;
+        private double sumY;
+        private double sumZ;
+
+        private SoundGroup(Sound sound, float pitch) {
+            this.sound = sound;
+            this.pitch = pitch;
+        }
+
+        private void add(Location location, float volume) {
+            baseVolume = Math.max(baseVolume, volume);
+            count++;
+            sumX += location.getX();
+            sumY += location.getY();
+            sumZ += location.getZ();
+        }
+
+        private float volume() {
+            return (float) (baseVolume * Math.min(MAX_VOLUME_SCALE, Math.sqrt(count)));
+        }
+
+        // Sounds louder than 1.0 don't get louder in game, they carry further
+        private double range() {
+            return AUDIBLE_RANGE * Math.max(1.0f, volume());
+        }
+
+        private Location toLocation(World world) {
+            return new Location(world, sumX / count, sumY / count, sumZ / count);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
+import services.plasma.minecraftRats.config.RatSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Per-tick spatial hash of the entities rats react to: configured predators
+ * and dropped items. Entities are tracked through events, and the cell
+ * buckets are rebuilt lazily on the first query of each tick. Access is
+ * synchronized so region threads can share the index.
+ */
+public class SpatialIndex {
+
+    private static final int CELL_SHIFT = 3;
+
+    private final List<Entity> tracked;
+    private final Set<UUID> trackedIds;
+    private final Grid threats;
+    private final Grid items;
+    private final Location scratch;
+    private boolean dirty;
+
+    public SpatialIndex() {
+        this.tracked = new ArrayList<>();
+        this.trackedIds = new HashSet<>();
+        this.threats = new Grid();
+        this.items = new Grid();
+        this.scratch = new Location(null, 0, 0, 0);
+        this.dirty = true;
+    }
+
+    /**
+     * Start tracking an entity if rats care about it
+     *
+     * @param entity The entity
+     * @param settings The current settings
+     */
+    public synchronized void track(Entity entity, RatSettings settings) {
+        if (!isRelevant(entity, settings)) {
+            return;
+        }
+
+        if (trackedIds.add(entity.getUniqueId())) {
+            tracked.add(entity);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Start tracking every relevant entity in a world
+     *
+     * @param world The world
+     * @param settings The current settings
+     */
+    public synchronized void trackAll(World world, RatSettings settings) {
+        for (Entity entity : world.getEntities()) {
+            track(entity, settings);
+        }
+    }
+
+    /**
+     * Forget every tracked entity
+     */
+    public synchronized void clear() {
+        tracked.clear();
+        trackedIds.clear();
+        threats.clear();
+        items.clear();
+        dirty = true;
+    }
+
+    /**
+     * Mark the buckets as stale. Called once at the start of every tick.
+     */
+    public synchronized void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Find the nearest predator within a cube around a position
+     *
+     * @param world The world
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param radius Half the edge length of the cube
+     * @return The nearest predator, or null if there is none
+     */
+    public synchronized Entity nearestThreat(World world, double x, double y, double z, double radius) {
+        refresh();
+        return threats.nearest(world.getUID(), x, y, z, radius);
+    }
+
+    /**
+     * Find the nearest dropped item within a cube around a position
+     *
+     * @param world The world
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param z The Z coordinate
+     * @param radius Half the edge length of the cube
+     * @return The nearest item, or null if there is none
+     */
+    public synchronized Item nearestItem(World world, double x, double y, double z, double radius) {
+        refresh();
+        return (Item) items.nearest(world.getUID(), x, y, z, radius);
+    }
+
+    /**
+     * Get the number of tracked entities
+     *
+     * @return The number of tracked entities
+     */
+    public synchronized int size() {
+        return tracked.size();
+    }
+
+    private boolean isRelevant(Entity entity, RatSettings settings) {
+        if (entity instanceof Item) {
+            return settings.isRatStealItems();
+        }
+        return settings.isScaredOf(entity.getType());
+    }
+
+    private void refresh() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        threats.clear();
+        items.clear();
+
+        for (int i = tracked.size() - 1; i >= 0; i--) {
+            Entity entity = tracked.get(i);
+            if (!entity.isValid()) {
+                int last = tracked.size() - 1;
+                tracked.set(i, tracked.get(last));
+                tracked.remove(last);
+                trackedIds.remove(entity.getUniqueId());
+                continue;
+            }
+
+            entity.getLocation(scratch);
+            Grid grid = entity instanceof Item ? items : threats;
+            grid.add(scratch.getWorld().getUID(), entity, scratch.getX(), scratch.getY(), scratch.getZ());
+        }
+    }
+
+    /**
+     * Column grid with reusable cell buckets
+     */
+    private static class Grid {
+        private final Map<UUID, Map<Long, Cell>> worlds = new HashMap<>();
+
+        private void clear() {
+            for (Map<Long, Cell> cells : worlds.values()) {
+                Iterator<Cell> iterator = cells.values().iterator();
+                while (iterator.hasNext()) {
+                    Cell cell = iterator.next();
+                    // Cells that stayed empty for a whole rebuild are dropped
+                    if (cell.size == 0) {
+                        iterator.remove();
+                    } else {
+                        cell.clear();
+                    }
+                }
+            }
+        }
+
+        private void add(UUID worldId, Entity entity, double x, double y, double z) {
+            Map<Long, Cell> cells = worlds.get(worldId);
+            if (cells == null) {
+                cells = new HashMap<>();
+                worlds.put(worldId, cells);
+            }
+
+            long key = RatRegistry.chunkKey((int) Math.floor(x) >> CELL_SHIFT, (int) Math.floor(z) >> CELL_SHIFT);
+            Cell cell = cells.get(key);
+            if (cell == null) {
+                cell = new Cell();
+                cells.put(key, cell);
+            }
+            cell.add(entity, x, y, z);
+        }
+
+        private Entity nearest(UUID worldId, double x, double y, double z, double radius) {
+            Map<Long, Cell> cells = worlds.get(worldId);
+            if (cells == null) {
+                return null;
+            }
+
+            int minX = (int) Math.floor(x - radius) >> CELL_SHIFT;
+            int maxX = (int) Math.floor(x + radius) >> CELL_SHIFT;
+            int minZ = (int) Math.floor(z - radius) >> CELL_SHIFT;
+            int maxZ = (int) Math.floor(z + radius) >> CELL_SHIFT;
+
+            Entity best = null;
+            double bestDistance = Double.MAX_VALUE;
+
+            for (int cx = minX; cx <= maxX; cx++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    Cell cell = cells.get(RatRegistry.chunkKey(cx, cz));
+                    if (cell == null) {
+                        continue;
+                    }
+
+                    for (int i = 0; i < cell.size; i++) {
+                        double dx = cell.xs[i] - x;
+                        double dy = cell.ys[i] - y;
+                        double dz = cell.zs[i] - z;
+                        if (Math.abs(dx) > radius || Math.abs(dy) > radius || Math.abs(dz) > radius) {
+                            continue;
+                        }
+
+                        double distance = dx * dx + dy * dy + dz * dz;
+                        if (distance < bestDistance && cell.entities[i].isValid()) {
+                            bestDistance = distance;
+                            best = cell.entities[i];
+                        }
+                    }
+                }
+            }
+
+            return best;
+        }
+    }
+
+    /**
+     * Flat arrays of entities and their positions in one grid cell
+     */
+    private static class Cell {
+        private Entity[] entities = new Entity[4];
+        private double[] xs = new double[4];
+        private double[] ys = new double[4];
+        private double[] zs = new double[4];
+        private int size;
+
+        private void add(Entity entity, double x, double y, double z) {
+            if (size == entities.length) {
+                int capacity = size * 2;
+                entities = Arrays.copyOf(entities, capacity);
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                zs = Arrays.copyOf(zs, capacity);
+            }
+            entities[size] = entity;
+            xs[size] = x;
+            ys[size] = y;
+            zs[size] = z;
+            size++;
+        }
+
+        private void clear() {
+            for (int i = 0; i < size; i++) {
+                entities[i] = null;
+            }
+            size = 0;
+        }
+    }
+}
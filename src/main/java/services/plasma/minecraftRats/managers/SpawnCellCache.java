@@ -0,0 +1,238 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.World;
+import services.plasma.minecraftRats.config.AliasTable;
+import services.plasma.minecraftRats.config.RatSettings;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Per-chunk cache of cells a rat may spawn in, covering cave pockets as well
+ * as the surface. Entries are dropped when a block in the chunk changes or
+ * the chunk unloads, and the whole cache is dropped when the settings change.
+ * Access is synchronized so region threads can share the cache.
+ */
+public class SpawnCellCache {
+
+    private final Map<UUID, Map<Long, ChunkCells>> worlds;
+    private final Map<UUID, Map<Long, Object>> pending;
+    private RatSettings settings;
+
+    public SpawnCellCache() {
+        this.worlds = new HashMap<>();
+        this.pending = new HashMap<>();
+    }
+
+    /**
+     * Drop every entry if the cache was built from other settings
+     *
+     * @param current The current settings
+     */
+    public synchronized void checkSettings(RatSettings current) {
+        if (settings != current) {
+            settings = current;
+            worlds.clear();
+            pending.clear();
+        }
+    }
+
+    /**
+     * Get the cached cells of a chunk
+     *
+     * @param worldId The world UID
+     * @param chunkKey The chunk key
+     * @return The cells, or null if the chunk has not been scanned
+     */
+    public synchronized ChunkCells get(UUID worldId, long chunkKey) {
+        Map<Long, ChunkCells> chunks = worlds.get(worldId);
+        return chunks == null ? null : chunks.get(chunkKey);
+    }
+
+    /**
+     * Check if a chunk is waiting for a scan
+     *
+     * @param worldId The world UID
+     * @param chunkKey The chunk key
+     * @return True if a scan is in flight
+     */
+    public synchronized boolean isPending(UUID worldId, long chunkKey) {
+        Map<Long, Object> chunks = pending.get(worldId);
+        return chunks != null && chunks.containsKey(chunkKey);
+    }
+
+    /**
+     * Mark a chunk as being scanned
+     *
+     * @param worldId The world UID
+     * @param chunkKey The chunk key
+     * @return A token that must be passed back to {@link #store}
+     */
+    public synchronized Object markPending(UUID worldId, long chunkKey) {
+        Object token = new Object();
+        Map<Long, Object> chunks = pending.get(worldId);
+        if (chunks == null) {
+            chunks = new HashMap<>();
+            pending.put(worldId, chunks);
+        }
+        chunks.put(chunkKey, token);
+        return token;
+    }
+
+    /**
+     * Store the result of a scan, unless the chunk changed while it was running
+     *
+     * @param worldId The world UID
+     * @param chunkKey The chunk key
+     * @param token The token from {@link #markPending}
+     * @param cells The scanned cells
+     */
+    public synchronized void store(UUID worldId, long chunkKey, Object token, ChunkCells cells) {
+        Map<Long, Object> pendingChunks = pending.get(worldId);
+        if (pendingChunks == null || pendingChunks.get(chunkKey) != token) {
+            return;
+        }
+        pendingChunks.remove(chunkKey);
+
+        Map<Long, ChunkCells> chunks = worlds.get(worldId);
+        if (chunks == null) {
+            chunks = new HashMap<>();
+            worlds.put(worldId, chunks);
+        }
+        chunks.put(chunkKey, cells);
+    }
+
+    /**
+     * Forget a scan that failed, so the chunk is scanned again next time
+     *
+     * @param worldId The world UID
+     * @param chunkKey The chunk key
+     * @param token The token from {@link #markPending}
+     */
+    public synchronized void release(UUID worldId, long chunkKey, Object token) {
+        Map<Long, Object> pendingChunks = pending.get(worldId);
+        if (pendingChunks != null && pendingChunks.get(chunkKey) == token) {
+            pendingChunks.remove(chunkKey);
+        }
+    }
+
+    /**
+     * Drop the cached cells of a chunk and cancel any scan in flight
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     */
+    public synchronized void invalidate(World world, int chunkX, int chunkZ) {
+        UUID worldId = world.getUID();
+        long key = RatRegistry.chunkKey(chunkX, chunkZ);
+
+        Map<Long, ChunkCells> chunks = worlds.get(worldId);
+        if (chunks != null) {
+            chunks.remove(key);
+        }
+
+        Map<Long, Object> pendingChunks = pending.get(worldId);
+        if (pendingChunks != null) {
+            pendingChunks.remove(key);
+        }
+    }
+
+    /**
+     * Drop every entry
+     */
+    public synchronized void clear() {
+        worlds.clear();
+        pending.clear();
+    }
+
+    /**
+     * Get the number of cached chunks
+     *
+     * @return The number of cached chunks
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (Map<Long, ChunkCells> chunks : worlds.values()) {
+            size += chunks.size();
+        }
+        return size;
+    }
+
+    /**
+     * The spawnable cells of one chunk, packed as ints with a weighted sampler
+     */
+    public static final class ChunkCells {
+        public static final ChunkCells EMPTY = new ChunkCells(new int[0], new double[0], 0);
+
+        private final int[] cells;
+        private final AliasTable sampler;
+        private final double totalWeight;
+        private final int minHeight;
+
+        public ChunkCells(int[] cells, double[] weights, int minHeight) {
+            this.cells = cells;
+            this.minHeight = minHeight;
+
+            double total = 0.0;
+            for (double weight : weights) {
+                total += weight;
+            }
+            this.totalWeight = total;
+            this.sampler = cells.length == 0 || total <= 0 ? null : new AliasTable(weights);
+        }
+
+        /**
+         * Pack a cell into an int
+         *
+         * @param x The X coordinate within the chunk
+         * @param y The Y coordinate offset from the world's minimum height
+         * @param z The Z coordinate within the chunk
+         * @param skyLight The raw sky light of the cell
+         * @return The packed cell
+         */
+        public static int pack(int x, int y, int z, int skyLight) {
+            return (y << 12) | (skyLight << 8) | (x << 4) | z;
+        }
+
+        public boolean isEmpty() {
+            return sampler == null;
+        }
+
+        public int size() {
+            return cells.length;
+        }
+
+        public double getTotalWeight() {
+            return totalWeight;
+        }
+
+        /**
+         * Pick a packed cell according to the biome weights
+         *
+         * @param random The random source
+         * @return The packed cell
+         */
+        public int pick(Random random) {
+            return cells[sampler.sample(random)];
+        }
+
+        public static int blockX(int cell) {
+            return (cell >> 4) & 15;
+        }
+
+        public static int blockZ(int cell) {
+            return cell & 15;
+        }
+
+        public static int skyLight(int cell) {
+            return (cell >> 8) & 15;
+        }
+
+        public int blockY(int cell) {
+            return (cell >>> 12) + minHeight;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import services.plasma.minecraftRats.config.RatSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scans chunk snapshots for spawnable cells off the main thread. The main
+ * thread only snapshots already-loaded chunks; every chunk is then scanned
+ * in parallel and the results are handed back for the spawn cell cache.
+ */
+public class SpawnPlanner {
+
+    private final ForkJoinPool pool;
+
+    public SpawnPlanner() {
+        this.pool = new ForkJoinPool(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+    }
+
+    /**
+     * Shut down the planning threads
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Snapshot a loaded chunk for scanning. Must be called on the main thread.
+     *
+     * @param world The world
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @param token The pending token from the spawn cell cache
+     * @return The scan request
+     */
+    public ScanRequest prepare(World world, int chunkX, int chunkZ, Object token) {
+        ChunkSnapshot snapshot = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(true, true, false);
+        return new ScanRequest(world, RatRegistry.chunkKey(chunkX, chunkZ), snapshot, token);
+    }
+
+    /**
+     * Scan prepared chunks off the main thread
+     *
+     * @param requests The prepared requests
+     * @param settings The settings snapshot to validate against
+     * @return A future that completes once every request has its cells, or exceptionally once
+     *         every scan has ended if any of them failed; the requests that succeeded keep their cells
+     */
+    public CompletableFuture<List<ScanRequest>> scan(List<ScanRequest> requests, RatSettings settings) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(requests.size());
+        for (ScanRequest request : requests) {
+            futures.add(CompletableFuture.runAsync(() -> request.cells = scanChunk(request, settings), pool));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> requests);
+    }
+
+    /**
+     * Find every spawnable cell of a chunk: an air pocket at least two blocks
+     * tall on top of a solid block, in an allowed biome and not lit too brightly
+     * by block light. Sky light depends on the time of day, so it is stored with
+     * the cell and checked when the cell is used.
+     *
+     * @param request The scan request
+     * @param settings The settings to validate against
+     * @return The spawnable cells
+     */
+    static SpawnCellCache.ChunkCells scanChunk(ScanRequest request, RatSettings settings) {
+        ChunkSnapshot snapshot = request.snapshot;
+        int minHeight = request.minHeight;
+        int maxHeight = request.maxHeight;
+
+        int[] cells = new int[64];
+        double[] weights = new double[64];
+        int count = 0;
+
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                int top = Math.min(maxHeight - 2, snapshot.getHighestBlockYAt(x, z) + 1);
+
+                boolean belowSolid = snapshot.getBlockType(x, minHeight, z).isSolid();
+                boolean hereSolid = snapshot.getBlockType(x, minHeight + 1, z).isSolid();
+
+                for (int y = minHeight + 1; y <= top; y++) {
+                    boolean aboveSolid = snapshot.getBlockType(x, y + 1, z).isSolid();
+
+                    if (belowSolid && !hereSolid && !aboveSolid
+                            && snapshot.getBlockEmittedLight(x, y, z) <= settings.getMaxLightLevel()) {
+                        Biome biome = snapshot.getBiome(x, y, z);
+                        if (!settings.isBiomeDisabled(biome)) {
+                            if (count == cells.length) {
+                                cells = Arrays.copyOf(cells, count * 2);
+                                weights = Arrays.copyOf(weights, count * 2);
+                            }
+                            cells[count] = SpawnCellCache.ChunkCells.pack(x, y - minHeight, z,
+                                    snapshot.getBlockSkyLight(x, y, z));
+                            weights[count] = settings.isBiomePreferred(biome) ? settings.getPreferredBiomeWeight() : 1.0;
+                            count++;
+                        }
+                    }
+
+                    belowSolid = hereSolid;
+                    hereSolid = aboveSolid;
+                }
+            }
+        }
+
+        if (count == 0) {
+            return SpawnCellCache.ChunkCells.EMPTY;
+        }
+        return new SpawnCellCache.ChunkCells(Arrays.copyOf(cells, count), Arrays.copyOf(weights, count), minHeight);
+    }
+
+    /**
+     * A chunk snapshot waiting to be scanned, and the result once it has been
+     */
+    public static class ScanRequest {
+        private final UUID worldId;
+        private final long chunkKey;
+        private final int minHeight;
+        private final int maxHeight;
+        private final ChunkSnapshot snapshot;
+        private final Object token;
+        private volatile SpawnCellCache.ChunkCells cells;
+
+        private ScanRequest(World world, long chunkKey, ChunkSnapshot snapshot, Object token) {
+            this.worldId = world.getUID();
+            this.chunkKey = chunkKey;
+            this.minHeight = world.getMinHeight();
+            this.maxHeight = world.getMaxHeight();
+            this.snapshot = snapshot;
+            this.token = token;
+        }
+
+        public UUID getWorldId() {
+            return worldId;
+        }
+
+        public long getChunkKey() {
+            return chunkKey;
+        }
+
+        public Object getToken() {
+            return token;
+        }
+
+        public SpawnCellCache.ChunkCells getCells() {
+            return cells;
+        }
+    }
+}
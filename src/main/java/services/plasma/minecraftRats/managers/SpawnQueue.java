@@ -0,0 +1,167 @@
+package services.plasma.minecraftRats.managers;
+
+import org.bukkit.Location;
+import org.bukkit.entity.LivingEntity;
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.scheduler.RatScheduler;
+import services.plasma.minecraftRats.scheduler.RatTask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Queue of bulk spawn requests, drained under a per-tick spawn budget so a
+ * large request is spread over several ticks. The task only runs while
+ * there are requests waiting. On a region-threaded server each spawn is
+ * sent to the thread that owns its location.
+ */
+public class SpawnQueue {
+
+    private final MinecraftRats plugin;
+    private final RatManager ratManager;
+    private final ArrayDeque<SpawnRequest> requests;
+    private RatTask task;
+
+    public SpawnQueue(MinecraftRats plugin, RatManager ratManager) {
+        this.plugin = plugin;
+        this.ratManager = ratManager;
+        this.requests = new ArrayDeque<>();
+    }
+
+    /**
+     * Queue rats to be spawned at a location
+     *
+     * @param location The location to spawn the rats at
+     * @param amount The number of rats to spawn
+     * @return A future with the rats that were spawned, completed on the thread that spawned the last of them
+     */
+    public synchronized CompletableFuture<List<LivingEntity>> submit(Location location, int amount) {
+        SpawnRequest request = new SpawnRequest(location.clone(), amount);
+        if (amount <= 0) {
+            request.finish();
+            return request.future;
+        }
+
+        requests.add(request);
+        if (task == null) {
+            task = plugin.getScheduler().runTimer(this::tick, 0L, 1L);
+        }
+        return request.future;
+    }
+
+    /**
+     * Get the number of rats still waiting to be spawned
+     *
+     * @return The number of queued rats
+     */
+    public synchronized int getQueuedCount() {
+        int count = 0;
+        for (SpawnRequest request : requests) {
+            count += request.remaining;
+        }
+        return count;
+    }
+
+    /**
+     * Stop the queue and complete every waiting request with what it has spawned so far
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        SpawnRequest request;
+        while ((request = requests.poll()) != null) {
+            request.finishNow();
+        }
+    }
+
+    private synchronized void tick() {
+        int budget = plugin.getConfigManager().getSettings().getSpawnsPerTick();
+        int maxRats = plugin.getConfigManager().getMaxRats();
+        RatScheduler scheduler = plugin.getScheduler();
+
+        while (budget > 0 && !requests.isEmpty()) {
+            SpawnRequest request = requests.peek();
+
+            if (request.location.getWorld() == null || ratManager.getRatCount() >= maxRats) {
+                // Nothing more can be spawned for this request
+                requests.poll();
+                request.finish();
+                continue;
+            }
+
+            budget--;
+            request.remaining--;
+            request.dispatched();
+            if (scheduler.isRegionized()) {
+                scheduler.runAt(request.location, () -> request.landed(ratManager.spawnRat(request.location)));
+            } else {
+                request.landed(ratManager.spawnRat(request.location));
+            }
+
+            if (request.remaining <= 0) {
+                requests.poll();
+                request.finish();
+            }
+        }
+
+        if (requests.isEmpty() && task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * A queued bulk spawn and the rats it has spawned so far. Spawns may land
+     * on other threads, so the request completes once it is finished and the
+     * last dispatched spawn has landed.
+     */
+    private static class SpawnRequest {
+        private final Location location;
+        private final List<LivingEntity> spawned;
+        private final CompletableFuture<List<LivingEntity>> future;
+        private int remaining;
+        private int pending;
+        private boolean finished;
+
+        private SpawnRequest(Location location, int amount) {
+            this.location = location;
+            this.spawned = new ArrayList<>(Math.max(0, amount));
+            this.future = new CompletableFuture<>();
+            this.remaining = amount;
+        }
+
+        private synchronized void dispatched() {
+            pending++;
+        }
+
+        private synchronized void landed(LivingEntity rat) {
+            if (rat != null) {
+                spawned.add(rat);
+            }
+            pending--;
+            completeIfDone();
+        }
+
+        private synchronized void finish() {
+            finished = true;
+            completeIfDone();
+        }
+
+        private synchronized void finishNow() {
+            finished = true;
+            future.complete(Collections.unmodifiableList(new ArrayList<>(spawned)));
+        }
+
+        private void completeIfDone() {
+            if (finished && pending == 0) {
+                future.complete(Collections.unmodifiableList(spawned));
+            }
+        }
+    }
+}
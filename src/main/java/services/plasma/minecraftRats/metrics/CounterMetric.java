@@ -0,0 +1,61 @@
+package services.plasma.minecraftRats.metrics;
+
+/**
+ * A named event counter with a total since startup and one slice per minute
+ * for the last 15 minutes, plus the minute in progress. Synchronized, so
+ * region threads can count into the same metric.
+ */
+public class CounterMetric {
+
+    private final String name;
+    private final String help;
+    private final long[] minutes;
+    private long total;
+    private int current;
+
+    public CounterMetric(String name, String help) {
+        this.name = name;
+        this.help = help;
+        this.minutes = new long[LatencyMetric.SLICES];
+    }
+
+    public synchronized void increment() {
+        total++;
+        minutes[current]++;
+    }
+
+    /**
+     * Start a new minute slice, dropping the oldest one
+     */
+    synchronized void rotate() {
+        current = (current + 1) % minutes.length;
+        minutes[current] = 0;
+    }
+
+    /**
+     * Sum the minute in progress and the full minutes before it, like
+     * {@link LatencyMetric#window(int)}
+     *
+     * @param windowMinutes The number of full minutes, between 1 and 15
+     * @return The number of events in the window
+     */
+    public synchronized long window(int windowMinutes) {
+        long sum = 0;
+        for (int i = 0; i <= Math.min(windowMinutes, LatencyMetric.WINDOW_MINUTES); i++) {
+            sum += minutes[(current - i + minutes.length) % minutes.length];
+        }
+        return sum;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    public synchronized long getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,122 @@
+package services.plasma.minecraftRats.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram. Every power of
+ * two is split into 16 linear buckets, so recorded values keep about 6%
+ * precision from nanoseconds up to minutes while recording stays a single
+ * array increment.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_SHIFT = 36;
+    private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_COUNT;
+
+    private final long[] counts;
+    private long count;
+    private long sum;
+    private long max;
+
+    public LatencyHistogram() {
+        this.counts = new long[BUCKETS];
+    }
+
+    /**
+     * Record a value
+     *
+     * @param nanos The value in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        counts[index(nanos)]++;
+        count++;
+        sum += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    /**
+     * Add every value of another histogram to this one
+     *
+     * @param other The other histogram
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Remove every value
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the value at a percentile
+     *
+     * @param percentile The percentile, between 0.0 and 1.0
+     * @return The value in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getValueAt(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(max, highestEquivalent(i));
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+
+        int shift = Math.min(MAX_SHIFT, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        int mantissa = (int) Math.min(SUB_COUNT * 2 - 1, value >>> shift);
+        return (shift + 1) * SUB_COUNT + (mantissa - SUB_COUNT);
+    }
+
+    private static long highestEquivalent(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+
+        int shift = index / SUB_COUNT - 1;
+        long mantissa = SUB_COUNT + index % SUB_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,94 @@
+package services.plasma.minecraftRats.metrics;
+
+/**
+ * A named latency histogram with a total since startup and one slice per
+ * minute for the last 15 minutes, plus the minute in progress. Synchronized,
+ * so region threads can record into the same metric.
+ */
+public class LatencyMetric {
+
+    static final int WINDOW_MINUTES = 15;
+
+    /**
+     * Number of slices: every full minute of the longest window and the current one
+     */
+    static final int SLICES = WINDOW_MINUTES + 1;
+
+    private final String name;
+    private final String help;
+    private final LatencyHistogram total;
+    private final LatencyHistogram[] minutes;
+    private int current;
+
+    public LatencyMetric(String name, String help) {
+        this.name = name;
+        this.help = help;
+        this.total = new LatencyHistogram();
+        this.minutes = new LatencyHistogram[SLICES];
+        for (int i = 0; i < SLICES; i++) {
+            minutes[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Record a duration
+     *
+     * @param nanos The duration in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        total.record(nanos);
+        minutes[current].record(nanos);
+    }
+
+    /**
+     * Record the time since a start timestamp
+     *
+     * @param startNanos The start from {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Start a new minute slice, dropping the oldest one
+     */
+    synchronized void rotate() {
+        current = (current + 1) % SLICES;
+        minutes[current].reset();
+    }
+
+    /**
+     * Merge the minute in progress and the full minutes before it. The
+     * partial minute is always included, so a window of one minute covers
+     * between one and two minutes and is never empty right after a rotation.
+     *
+     * @param windowMinutes The number of full minutes, between 1 and 15
+     * @return A new histogram with the values of the window
+     */
+    public synchronized LatencyHistogram window(int windowMinutes) {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (int i = 0; i <= Math.min(windowMinutes, WINDOW_MINUTES); i++) {
+            merged.add(minutes[(current - i + SLICES) % SLICES]);
+        }
+        return merged;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    /**
+     * Copy the histogram of every value since startup
+     *
+     * @return A new histogram with every recorded value
+     */
+    public synchronized LatencyHistogram getTotal() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(total);
+        return copy;
+    }
+}
@@ -0,0 +1,237 @@
+package services.plasma.minecraftRats.metrics;
+
+import services.plasma.minecraftRats.MinecraftRats;
+import services.plasma.minecraftRats.config.RatSettings;
+import services.plasma.minecraftRats.managers.RatManager;
+import services.plasma.minecraftRats.scheduler.RatTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Counters and latency histograms for the plugin's work on the main thread.
+ * Minute slices are rotated by wall clock, and the metrics are optionally
+ * written to metrics.prom in the Prometheus text format.
+ */
+public class RatMetrics {
+
+    private static final String PREFIX = "minecraftrats_";
+    private static final long TASK_PERIOD = 20L;
+
+    private final MinecraftRats plugin;
+    private final File file;
+    private final Object ioLock;
+
+    private final LatencyMetric spawnCycle;
+    private final LatencyMetric spawnApply;
+    private final LatencyMetric ratBehavior;
+    private final LatencyMetric blockBreakListener;
+    private final LatencyMetric deathListener;
+    private final LatencyMetric targetListener;
+    private final LatencyMetric damageListener;
+    private final CounterMetric spawnAttempts;
+    private final CounterMetric spawnSuccesses;
+
+    private final List<LatencyMetric> latencies;
+    private final List<CounterMetric> counters;
+
+    private RatTask task;
+    private long currentMinute;
+    private long secondsSinceExport;
+
+    public RatMetrics(MinecraftRats plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "metrics.prom");
+        this.ioLock = new Object();
+
+        this.spawnCycle = new LatencyMetric("spawn_cycle", "Main thread time planning one natural spawning cycle");
+        this.spawnApply = new LatencyMetric("spawn_apply", "Server thread time spawning the rats of one spawning batch");
+        this.ratBehavior = new LatencyMetric("rat_behavior", "Time of one rat behavior visit");
+        this.blockBreakListener = new LatencyMetric("block_break_listener", "Time in the block break listener");
+        this.deathListener = new LatencyMetric("death_listener", "Time handling a rat death");
+        this.targetListener = new LatencyMetric("target_listener", "Time handling a rat picking a target");
+        this.damageListener = new LatencyMetric("damage_listener", "Time handling damage dealt by a rat");
+        this.spawnAttempts = new CounterMetric("spawn_attempts", "Spawn cells picked for a natural spawn");
+        this.spawnSuccesses = new CounterMetric("spawn_successes", "Natural spawns that passed every check");
+
+        this.latencies = Collections.unmodifiableList(Arrays.asList(
+                spawnCycle, spawnApply, ratBehavior, blockBreakListener, deathListener, targetListener, damageListener));
+        this.counters = Collections.unmodifiableList(Arrays.asList(spawnAttempts, spawnSuccesses));
+    }
+
+    /**
+     * Start the task that rotates the minute slices and exports the metrics
+     */
+    public void start() {
+        if (task != null) {
+            task.cancel();
+        }
+
+        currentMinute = System.currentTimeMillis() / 60000L;
+        task = plugin.getScheduler().runTimer(this::tick, TASK_PERIOD, TASK_PERIOD);
+    }
+
+    /**
+     * Stop the metrics task
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    public LatencyMetric getSpawnCycle() {
+        return spawnCycle;
+    }
+
+    public LatencyMetric getSpawnApply() {
+        return spawnApply;
+    }
+
+    public LatencyMetric getRatBehavior() {
+        return ratBehavior;
+    }
+
+    public LatencyMetric getBlockBreakListener() {
+        return blockBreakListener;
+    }
+
+    public LatencyMetric getDeathListener() {
+        return deathListener;
+    }
+
+    public LatencyMetric getTargetListener() {
+        return targetListener;
+    }
+
+    public LatencyMetric getDamageListener() {
+        return damageListener;
+    }
+
+    public CounterMetric getSpawnAttempts() {
+        return spawnAttempts;
+    }
+
+    public CounterMetric getSpawnSuccesses() {
+        return spawnSuccesses;
+    }
+
+    public List<LatencyMetric> getLatencies() {
+        return latencies;
+    }
+
+    public List<CounterMetric> getCounters() {
+        return counters;
+    }
+
+    private void tick() {
+        // Rotate once per elapsed minute, so slices stay aligned even when ticks lag
+        long minute = System.currentTimeMillis() / 60000L;
+        long elapsed = Math.min(LatencyMetric.SLICES, minute - currentMinute);
+        for (long i = 0; i < elapsed; i++) {
+            for (LatencyMetric metric : latencies) {
+                metric.rotate();
+            }
+            for (CounterMetric counter : counters) {
+                counter.rotate();
+            }
+        }
+        currentMinute = minute;
+
+        RatSettings settings = plugin.getConfigManager().getSettings();
+        if (!settings.isPrometheusFileEnabled()) {
+            return;
+        }
+
+        secondsSinceExport++;
+        if (secondsSinceExport >= settings.getPrometheusInterval()) {
+            secondsSinceExport = 0;
+
+            // Format on the main thread, write on an async thread
+            final String text = toPrometheus();
+            plugin.getScheduler().runAsync(() -> write(text));
+        }
+    }
+
+    /**
+     * Format every metric in the Prometheus text exposition format. Quantiles
+     * cover the last full minute and the one in progress; sums and counts are
+     * totals since startup.
+     *
+     * @return The formatted metrics
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+
+        for (LatencyMetric metric : latencies) {
+            String name = PREFIX + metric.getName() + "_seconds";
+            LatencyHistogram window = metric.window(1);
+            LatencyHistogram total = metric.getTotal();
+
+            out.append("# HELP ").append(name).append(' ').append(metric.getHelp()).append('\n');
+            out.append("# TYPE ").append(name).append(" summary\n");
+            appendQuantile(out, name, "0.5", window.getValueAt(0.5));
+            appendQuantile(out, name, "0.9", window.getValueAt(0.9));
+            appendQuantile(out, name, "0.99", window.getValueAt(0.99));
+            appendQuantile(out, name, "1", window.getMax());
+            out.append(name).append("_sum ").append(seconds(total.getSum())).append('\n');
+            out.append(name).append("_count ").append(total.getCount()).append('\n');
+        }
+
+        for (CounterMetric counter : counters) {
+            String name = PREFIX + counter.getName() + "_total";
+            out.append("# HELP ").append(name).append(' ').append(counter.getHelp()).append('\n');
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(counter.getTotal()).append('\n');
+        }
+
+        RatManager ratManager = plugin.getRatManager();
+        if (ratManager != null) {
+            appendGauge(out, "rats", "Registered live rats", ratManager.getRatCount());
+            appendGauge(out, "hibernating_rats", "Rats hibernating away from players",
+                    ratManager.getRegistry().getHibernatingCount());
+            appendGauge(out, "nests", "Stored nests", plugin.getNestManager().size());
+            appendGauge(out, "behavior_ticks_behind", "Ticks the behavior scheduler is behind its interval",
+                    ratManager.getBehaviorScheduler().getTicksBehind());
+        }
+
+        return out.toString();
+    }
+
+    private static void appendQuantile(StringBuilder out, String name, String quantile, long nanos) {
+        out.append(name).append("{quantile=\"").append(quantile).append("\"} ").append(seconds(nanos)).append('\n');
+    }
+
+    private static void appendGauge(StringBuilder out, String name, String help, long value) {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(" gauge\n");
+        out.append(PREFIX).append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1.0e9);
+    }
+
+    private void write(String text) {
+        synchronized (ioLock) {
+            File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try {
+                if (!file.getParentFile().exists()) {
+                    file.getParentFile().mkdirs();
+                }
+                Files.write(temp.toPath(), text.getBytes(StandardCharsets.UTF_8));
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not write metrics: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package services.plasma.minecraftRats.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Scheduler for servers with one main thread. Location and entity tasks
+ * simply run on the main thread.
+ */
+public class BukkitRatScheduler implements RatScheduler {
+
+    private final Plugin plugin;
+
+    public BukkitRatScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    @Override
+    public void run(Runnable task) {
+        Bukkit.getScheduler().runTask(plugin, task);
+    }
+
+    @Override
+    public RatTask runLater(Runnable task, long delay) {
+        BukkitTask handle = Bukkit.getScheduler().runTaskLater(plugin, task, delay);
+        return handle::cancel;
+    }
+
+    @Override
+    public RatTask runTimer(Runnable task, long delay, long period) {
+        BukkitTask handle = Bukkit.getScheduler().runTaskTimer(plugin, task, delay, period);
+        return handle::cancel;
+    }
+
+    @Override
+    public void runAt(Location location, Runnable task) {
+        Bukkit.getScheduler().runTask(plugin, task);
+    }
+
+    @Override
+    public void runFor(Entity entity, Runnable task, Runnable retired) {
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if (entity.isValid()) {
+                task.run();
+            } else if (retired != null) {
+                retired.run();
+            }
+        });
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+    }
+}
@@ -0,0 +1,138 @@
+package services.plasma.minecraftRats.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler for Folia's region-threaded servers. The plugin is built against
+ * the Spigot API, so the region schedulers are looked up reflectively once
+ * and called through the cached methods.
+ */
+public class FoliaRatScheduler implements RatScheduler {
+
+    private static final String REGIONIZED_SERVER = "io.papermc.paper.threadedregions.RegionizedServer";
+
+    private final Plugin plugin;
+    private final Object globalScheduler;
+    private final Object regionScheduler;
+    private final Object asyncScheduler;
+    private final Method globalExecute;
+    private final Method globalRunDelayed;
+    private final Method globalRunAtFixedRate;
+    private final Method regionExecute;
+    private final Method entityGetScheduler;
+    private final Method entityExecute;
+    private final Method asyncRunNow;
+    private final Method taskCancel;
+
+    public FoliaRatScheduler(Plugin plugin) throws ReflectiveOperationException {
+        this.plugin = plugin;
+
+        Server server = Bukkit.getServer();
+        globalScheduler = Server.class.getMethod("getGlobalRegionScheduler").invoke(server);
+        regionScheduler = Server.class.getMethod("getRegionScheduler").invoke(server);
+        asyncScheduler = Server.class.getMethod("getAsyncScheduler").invoke(server);
+
+        Class<?> global = Class.forName("io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler");
+        globalExecute = global.getMethod("execute", Plugin.class, Runnable.class);
+        globalRunDelayed = global.getMethod("runDelayed", Plugin.class, Consumer.class, long.class);
+        globalRunAtFixedRate = global.getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+
+        Class<?> region = Class.forName("io.papermc.paper.threadedregions.scheduler.RegionScheduler");
+        regionExecute = region.getMethod("execute", Plugin.class, Location.class, Runnable.class);
+
+        Class<?> entity = Class.forName("io.papermc.paper.threadedregions.scheduler.EntityScheduler");
+        entityGetScheduler = Entity.class.getMethod("getScheduler");
+        entityExecute = entity.getMethod("execute", Plugin.class, Runnable.class, Runnable.class, long.class);
+
+        Class<?> async = Class.forName("io.papermc.paper.threadedregions.scheduler.AsyncScheduler");
+        asyncRunNow = async.getMethod("runNow", Plugin.class, Consumer.class);
+
+        taskCancel = Class.forName("io.papermc.paper.threadedregions.scheduler.ScheduledTask").getMethod("cancel");
+    }
+
+    /**
+     * Check if the server is a region-threaded Folia server
+     *
+     * @return True if the Folia schedulers are available
+     */
+    public static boolean isSupported() {
+        try {
+            Class.forName(REGIONIZED_SERVER);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public void run(Runnable task) {
+        invoke(globalExecute, globalScheduler, plugin, task);
+    }
+
+    @Override
+    public RatTask runLater(Runnable task, long delay) {
+        // Folia rejects delays below one tick
+        Object handle = invoke(globalRunDelayed, globalScheduler, plugin, consumer(task), Math.max(1L, delay));
+        return () -> invoke(taskCancel, handle);
+    }
+
+    @Override
+    public RatTask runTimer(Runnable task, long delay, long period) {
+        Object handle = invoke(globalRunAtFixedRate, globalScheduler, plugin, consumer(task),
+                Math.max(1L, delay), Math.max(1L, period));
+        return () -> invoke(taskCancel, handle);
+    }
+
+    @Override
+    public void runAt(Location location, Runnable task) {
+        invoke(regionExecute, regionScheduler, plugin, location, task);
+    }
+
+    @Override
+    public void runFor(Entity entity, Runnable task, Runnable retired) {
+        Object scheduler = invoke(entityGetScheduler, entity);
+        boolean scheduled = (Boolean) invoke(entityExecute, scheduler, plugin, task, retired, 1L);
+        if (!scheduled && retired != null) {
+            retired.run();
+        }
+    }
+
+    @Override
+    public void runAsync(Runnable task) {
+        invoke(asyncRunNow, asyncScheduler, plugin, consumer(task));
+    }
+
+    private static Consumer<Object> consumer(Runnable task) {
+        return handle -> task.run();
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
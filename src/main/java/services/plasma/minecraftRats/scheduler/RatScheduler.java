@@ -0,0 +1,70 @@
+package services.plasma.minecraftRats.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+/**
+ * Where plugin work runs. On a regular server everything runs on the main
+ * thread. On a region-threaded server, global work runs on the global
+ * region thread, and anything touching a location or an entity has to run
+ * on the thread of the region that owns it.
+ */
+public interface RatScheduler {
+
+    /**
+     * Check if the server runs regions on separate threads
+     *
+     * @return True if work must be sent to the owning region's thread
+     */
+    boolean isRegionized();
+
+    /**
+     * Run a task on the global thread next tick
+     *
+     * @param task The task
+     */
+    void run(Runnable task);
+
+    /**
+     * Run a task on the global thread after a delay
+     *
+     * @param task The task
+     * @param delay The delay in ticks
+     * @return A handle to cancel the task
+     */
+    RatTask runLater(Runnable task, long delay);
+
+    /**
+     * Run a task on the global thread repeatedly
+     *
+     * @param task The task
+     * @param delay The delay before the first run in ticks
+     * @param period The period in ticks
+     * @return A handle to cancel the task
+     */
+    RatTask runTimer(Runnable task, long delay, long period);
+
+    /**
+     * Run a task on the thread that owns a location
+     *
+     * @param location The location
+     * @param task The task
+     */
+    void runAt(Location location, Runnable task);
+
+    /**
+     * Run a task on the thread that owns an entity, following the entity if it moves between regions
+     *
+     * @param entity The entity
+     * @param task The task
+     * @param retired Run instead of the task if the entity was removed first, may be null
+     */
+    void runFor(Entity entity, Runnable task, Runnable retired);
+
+    /**
+     * Run a task off the server threads
+     *
+     * @param task The task
+     */
+    void runAsync(Runnable task);
+}
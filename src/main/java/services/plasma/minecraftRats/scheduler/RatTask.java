@@ -0,0 +1,12 @@
+package services.plasma.minecraftRats.scheduler;
+
+/**
+ * Handle to a scheduled task
+ */
+public interface RatTask {
+
+    /**
+     * Cancel the task. Does nothing if it already ran or was cancelled.
+     */
+    void cancel();
+}